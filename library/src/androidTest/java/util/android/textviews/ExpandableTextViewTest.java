@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Typeface;
+import android.test.AndroidTestCase;
+import android.text.Layout;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * Check that the collapsed text of an ExpandableTextView keeps its expansion label visible when
+ * the text attributes change after it was first collapsed, as they do when a font finishes
+ * loading.
+ */
+public class ExpandableTextViewTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int TRIM = 2;
+    private static final String EXPANSION = "Read more";
+    private static final String TEXT =
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor "
+                    + "incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis "
+                    + "nostrud exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat."
+                    + " Duis aute irure dolor in reprehenderit in voluptate velit esse cillum "
+                    + "dolore eu fugiat nulla pariatur.";
+
+    public void testCollapsesAfterTypefaceChange() {
+        ExpandableTextView view = createCollapsedView();
+
+        view.setTypeface(Typeface.MONOSPACE);
+        collapse(view);
+
+        assertCollapsed(view);
+    }
+
+    public void testCollapsesAfterTextSizeChange() {
+        ExpandableTextView view = createCollapsedView();
+
+        view.setTextSize(TypedValue.COMPLEX_UNIT_PX, view.getTextSize() * 1.5f);
+        collapse(view);
+
+        assertCollapsed(view);
+    }
+
+    private ExpandableTextView createCollapsedView() {
+        ExpandableTextView view = new ExpandableTextView(getContext());
+        view.setEllipsize(TextUtils.TruncateAt.END);
+        view.setExpansionText(EXPANSION);
+        view.setTrim(TRIM);
+        view.setText(TEXT, true);
+        collapse(view);
+        assertCollapsed(view);
+        return view;
+    }
+
+    /** Lay the view out and collapse it, as its layout and pre-draw listeners would. */
+    private static void collapse(ExpandableTextView view) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+        view.layout(0, 0, WIDTH, view.getMeasuredHeight());
+        view.addEllipse();
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.AT_MOST));
+        view.layout(0, 0, WIDTH, view.getMeasuredHeight());
+    }
+
+    private static void assertCollapsed(ExpandableTextView view) {
+        assertTrue(view.getText().toString().endsWith(EXPANSION));
+        Layout layout = view.getLayout();
+        int lastLine = layout.getLineCount() - 1;
+        assertEquals(TRIM - 1, lastLine);
+        // TextView must not have had to cut off the label with its own ellipsis
+        assertEquals(0, layout.getEllipsisCount(lastLine));
+    }
+}
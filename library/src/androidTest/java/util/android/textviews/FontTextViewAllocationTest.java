@@ -0,0 +1,103 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.ForegroundColorSpan;
+import android.view.View;
+
+/**
+ * Check that once a justified or ragged layout has been computed, drawing it does not allocate.
+ */
+public class FontTextViewAllocationTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final String TEXT =
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor "
+                    + "incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis "
+                    + "nostrud exercitation ullamco laboris nisi ut aliquip ex ea commodo consequat."
+                    + "\nDuis aute irure dolor in reprehenderit in voluptate velit esse cillum "
+                    + "dolore eu fugiat nulla pariatur.";
+
+    private Canvas canvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testJustifiedDrawDoesNotAllocate() {
+        FontTextView view = createView(TEXT);
+        view.setJustify(true);
+        view.setNativeJustifyEnabled(false);
+        assertEquals(0, countDrawAllocations(view));
+    }
+
+    public void testRaggedDrawDoesNotAllocate() {
+        FontTextView view = createView(TEXT);
+        view.setWordEllipsize(true);
+        view.setEllipsize(TextUtils.TruncateAt.END);
+        view.setMaxLines(3);
+        assertEquals(0, countDrawAllocations(view));
+    }
+
+    public void testStyledJustifiedDrawDoesNotAllocate() {
+        SpannableString text = new SpannableString(TEXT);
+        text.setSpan(new ForegroundColorSpan(Color.RED), 6, 17, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        text.setSpan(new ForegroundColorSpan(Color.BLUE), 40, 90, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        FontTextView view = createView(text);
+        view.setJustify(true);
+        view.setNativeJustifyEnabled(false);
+        assertEquals(0, countDrawAllocations(view));
+    }
+
+    private FontTextView createView(CharSequence text) {
+        FontTextView view = new FontTextView(getContext());
+        view.setText(text);
+        return view;
+    }
+
+    private int countDrawAllocations(FontTextView view) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+
+        // The first draw computes the layout
+        view.onDraw(canvas);
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < 10; i++) {
+                view.onDraw(canvas);
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        return Debug.getThreadAllocCount();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.test.AndroidTestCase;
+import android.text.SpannableString;
+import android.text.Spanned;
+import android.util.Log;
+import android.view.View;
+
+/**
+ * Compare the platform's justification on API 26 and higher with the library's own engine, on
+ * the same text: the first draw, which breaks the text into lines, and the draws after it, which
+ * replay the lines.
+ */
+public class JustificationBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = JustificationBenchmark.class.getSimpleName();
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 4000;
+    private static final int WARM_UP = 5;
+    private static final int ITERATIONS = 20;
+    private static final int FRAMES = 200;
+    private static final String SENTENCE =
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor, see "
+                    + "http://www.example.com #lorem. ";
+
+    private Canvas canvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testPlainText() {
+        compare("plain", createText(2000), FontTextView.LINK_TYPE_NONE);
+    }
+
+    public void testLinksAndTypefaces() {
+        SpannableString text = new SpannableString(createText(2000));
+        for (int i = 0; i + 11 < text.length(); i += SENTENCE.length()) {
+            text.setSpan(
+                    new TypefaceSpan(getContext(), "serif"),
+                    i,
+                    i + 11,
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        compare("styled", text, FontTextView.LINK_TYPE_ALL);
+    }
+
+    private void compare(String name, CharSequence text, int linkType) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            Log.i(LOG_TAG, name + ": native justification needs API 26, skipped");
+            return;
+        }
+        FontTextView nativeView = createView(text, linkType, true);
+        FontTextView customView = createView(text, linkType, false);
+
+        Log.i(LOG_TAG, name + " (" + text.length() + " chars): "
+                + timeLayout(nativeView) + "ns per native layout, "
+                + timeLayout(customView) + "ns per custom layout");
+        Log.i(LOG_TAG, name + " (" + text.length() + " chars): "
+                + timeFrames(nativeView) + "ns per native frame, "
+                + timeFrames(customView) + "ns per custom frame");
+    }
+
+    /** Time measuring and drawing the view when its lines have to be broken again. */
+    private long timeLayout(FontTextView view) {
+        for (int i = 0; i < WARM_UP; i++) {
+            relayout(view);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            relayout(view);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private void relayout(FontTextView view) {
+        // Alternate the width so that the platform cannot reuse its layout either
+        view.invalidateWordLayout();
+        layout(view, view.getWidth() == WIDTH ? WIDTH - 1 : WIDTH);
+        view.draw(canvas);
+    }
+
+    /** Time drawing the view once its lines are known. */
+    private long timeFrames(FontTextView view) {
+        layout(view, WIDTH);
+        for (int i = 0; i < WARM_UP; i++) {
+            view.draw(canvas);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            view.draw(canvas);
+        }
+        return (System.nanoTime() - start) / FRAMES;
+    }
+
+    private FontTextView createView(CharSequence text, int linkType, boolean nativeJustify) {
+        FontTextView view = new FontTextView(getContext());
+        view.setLinkType(linkType);
+        view.setText(text, true);
+        view.setJustify(true);
+        view.setNativeJustifyEnabled(nativeJustify);
+        layout(view, WIDTH);
+        return view;
+    }
+
+    private static void layout(View view, int width) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, HEIGHT);
+    }
+
+    private static String createText(int length) {
+        StringBuilder builder = new StringBuilder(length + SENTENCE.length());
+        while (builder.length() < length) {
+            builder.append(SENTENCE);
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+}
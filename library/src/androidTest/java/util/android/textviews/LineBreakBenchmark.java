@@ -0,0 +1,101 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.View;
+
+/**
+ * Time how long it takes to break increasingly long paragraphs into justified lines. Each
+ * doubling of the text length should roughly double the time taken; the old breaker re-measured
+ * the whole line for every word and grew much faster than that.
+ *
+ * <p>Times depend on the device, so they are only logged. The linear scaling itself is checked
+ * by {@code LineBreakerTest} in the textcore module.</p>
+ */
+public class LineBreakBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = LineBreakBenchmark.class.getSimpleName();
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int[] LENGTHS = {1250, 2500, 5000, 10000};
+    private static final int WARM_UP = 5;
+    private static final int ITERATIONS = 20;
+    private static final String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+        "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua"
+    };
+
+    private Canvas canvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testJustifiedBreaking() {
+        long previous = 0;
+        for (int length : LENGTHS) {
+            long time = timeLayout(createText(length));
+            Log.i(
+                    LOG_TAG,
+                    length
+                            + " chars: "
+                            + time
+                            + "ns per layout"
+                            + (previous > 0 ? ", " + (double) time / previous + "x previous" : ""));
+            previous = time;
+        }
+    }
+
+    private long timeLayout(String text) {
+        FontTextView view = new FontTextView(getContext());
+        view.setText(text);
+        view.setJustify(true);
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+
+        for (int i = 0; i < WARM_UP; i++) {
+            view.invalidateWordLayout();
+            view.onDrawJustified(canvas);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            view.invalidateWordLayout();
+            view.onDrawJustified(canvas);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static String createText(int length) {
+        StringBuilder builder = new StringBuilder(length + 16);
+        int word = 0;
+        while (builder.length() < length) {
+            builder.append(WORDS[word++ % WORDS.length]).append(' ');
+        }
+        builder.setLength(length);
+        return builder.toString();
+    }
+}
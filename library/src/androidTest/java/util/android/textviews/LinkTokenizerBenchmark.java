@@ -0,0 +1,132 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.util.Patterns;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import util.android.textviews.core.LinkTokenizer;
+
+/**
+ * Compare the single pass {@link LinkTokenizer} against scanning the text once per link type, as
+ * FontTextView used to, on chat length and article length text.
+ */
+public class LinkTokenizerBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = LinkTokenizerBenchmark.class.getSimpleName();
+
+    private static final int WARM_UP = 20;
+    private static final int ITERATIONS = 200;
+    private static final Pattern[] PATTERNS = {
+        Patterns.WEB_URL,
+        Pattern.compile("(#\\w+)"),
+        Pattern.compile("(@\\w+)"),
+        Patterns.EMAIL_ADDRESS
+    };
+    private static final int[] TYPES = {
+        FontTextView.LINK_TYPE_WEB,
+        FontTextView.LINK_TYPE_HASHTAG,
+        FontTextView.LINK_TYPE_SCREENNAME,
+        FontTextView.LINK_TYPE_EMAIL
+    };
+    private static final String CHAT =
+            "@sam see https://example.com/party for details #friday, or mail rsvp@example.com";
+    private static final String[] SENTENCES = {
+        "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ",
+        "Read more at www.example.org/articles/42 before the meeting. ",
+        "Thanks to @editor and @reviewer for their help. ",
+        "Questions can go to press@example.com at any time. ",
+        "Sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ",
+        "Follow #news and #weather for updates. "
+    };
+
+    public void testLinksDoNotOverlap() {
+        LinkTokenizer tokenizer = new LinkTokenizer(PATTERNS, TYPES);
+        int[] tokens = tokenizer.tokenize(CHAT, FontTextView.LINK_TYPE_ALL);
+
+        assertEquals(4 * LinkTokenizer.TOKEN_SIZE, tokens.length);
+        assertToken(tokens, 0, "@sam", FontTextView.LINK_TYPE_SCREENNAME);
+        assertToken(tokens, 1, "https://example.com/party", FontTextView.LINK_TYPE_WEB);
+        assertToken(tokens, 2, "#friday", FontTextView.LINK_TYPE_HASHTAG);
+        assertToken(tokens, 3, "rsvp@example.com", FontTextView.LINK_TYPE_EMAIL);
+    }
+
+    public void testChatLength() {
+        compare("chat", CHAT);
+    }
+
+    public void testArticleLength() {
+        StringBuilder article = new StringBuilder();
+        for (int i = 0; article.length() < 5000; i++) {
+            article.append(SENTENCES[i % SENTENCES.length]);
+        }
+        compare("article", article.toString());
+    }
+
+    private void compare(String name, String text) {
+        LinkTokenizer tokenizer = new LinkTokenizer(PATTERNS, TYPES);
+        for (int i = 0; i < WARM_UP; i++) {
+            tokenizer.tokenize(text, FontTextView.LINK_TYPE_ALL);
+            scanEachType(text);
+        }
+
+        long start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            found = tokenizer.tokenize(text, FontTextView.LINK_TYPE_ALL).length;
+        }
+        long single = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            scanEachType(text);
+        }
+        long multiple = (System.nanoTime() - start) / ITERATIONS;
+
+        Log.i(LOG_TAG, name + " (" + text.length() + " chars, " + found / LinkTokenizer.TOKEN_SIZE
+                + " links): single pass " + single + "ns, one scan per type " + multiple + "ns");
+        assertTrue(found > 0);
+    }
+
+    /** The old approach: one scan per link type, collecting every match. */
+    private static List<Object[]> scanEachType(CharSequence text) {
+        List<Object[]> links = new ArrayList<>();
+        for (int i = 0; i < PATTERNS.length; i++) {
+            Matcher m = PATTERNS[i].matcher(text);
+            while (m.find()) {
+                links.add(new Object[] {
+                    text.subSequence(m.start(), m.end()), m.start(), m.end(), TYPES[i]
+                });
+            }
+        }
+        return links;
+    }
+
+    private static void assertToken(int[] tokens, int index, String expected, int type) {
+        int offset = index * LinkTokenizer.TOKEN_SIZE;
+        int start = tokens[offset + LinkTokenizer.TOKEN_START];
+        int end = tokens[offset + LinkTokenizer.TOKEN_END];
+        assertEquals(expected, CHAT.substring(start, end));
+        assertEquals(type, tokens[offset + LinkTokenizer.TOKEN_TYPE]);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.shimmer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import android.view.View;
+
+import util.android.textviews.ShimmerTextView;
+
+/**
+ * Time the cost of a shimmer frame: moving the gradient, and drawing a ShimmerTextView with and
+ * without its mask cache, for short and long text.
+ */
+public class ShimmerBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = ShimmerBenchmark.class.getSimpleName();
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+    private static final int WARM_UP = 20;
+    private static final int FRAMES = 200;
+    private static final String SHORT_TEXT = "Loading";
+    private static final String SENTENCE =
+            "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor. ";
+
+    private Canvas canvas;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    public void testGradientFrame() {
+        ShimmerTextView view = createView(SHORT_TEXT, false);
+        for (int i = 0; i < WARM_UP; i++) {
+            view.setGradientX(i);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            view.setGradientX(i % WIDTH);
+        }
+        long perFrame = (System.nanoTime() - start) / FRAMES;
+        Log.i(LOG_TAG, "setGradientX: " + perFrame + "ns per frame");
+    }
+
+    public void testShortText() {
+        compare("short", SHORT_TEXT);
+    }
+
+    public void testLongText() {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 2000) {
+            text.append(SENTENCE);
+        }
+        compare("long", text.toString());
+    }
+
+    private void compare(String name, String text) {
+        long direct = timeFrames(createView(text, false));
+        long masked = timeFrames(createView(text, true));
+        Log.i(LOG_TAG, name + " (" + text.length() + " chars): " + direct
+                + "ns per frame drawing text, " + masked + "ns per frame drawing mask");
+    }
+
+    private long timeFrames(ShimmerTextView view) {
+        for (int i = 0; i < WARM_UP; i++) {
+            view.setGradientX(i);
+            view.onDraw(canvas);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            view.setGradientX(i % WIDTH);
+            view.onDraw(canvas);
+        }
+        return (System.nanoTime() - start) / FRAMES;
+    }
+
+    private ShimmerTextView createView(String text, boolean maskCache) {
+        ShimmerTextView view = new ShimmerTextView(getContext());
+        view.setText(text);
+        view.setMaskCacheEnabled(maskCache);
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        view.setShimmering(true);
+        return view;
+    }
+}
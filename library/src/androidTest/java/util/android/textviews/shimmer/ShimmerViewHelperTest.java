@@ -0,0 +1,141 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.shimmer;
+
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.os.Debug;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+/**
+ * Check that the shimmer gradient is only built when the width of the view changes, and that
+ * moving it each frame does not allocate.
+ */
+public class ShimmerViewHelperTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 100;
+
+    private View view;
+    private Paint paint;
+    private ShimmerViewHelper helper;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        view = new View(getContext());
+        paint = new Paint();
+        helper = new ShimmerViewHelper(view, paint, null);
+    }
+
+    public void testSetUpOnFirstSizeChange() {
+        final int[] setUpCount = new int[1];
+        helper.setAnimationSetupCallback(new ShimmerViewHelper.AnimationSetupCallback() {
+            @Override
+            public void onSetupAnimation(View target) {
+                setUpCount[0]++;
+            }
+        });
+        assertFalse(helper.isSetUp());
+
+        layout(WIDTH, HEIGHT);
+        layout(WIDTH * 2, HEIGHT);
+
+        assertTrue(helper.isSetUp());
+        assertEquals(1, setUpCount[0]);
+    }
+
+    public void testGradientIsReusedUntilWidthChanges() {
+        layout(WIDTH, HEIGHT);
+        helper.setShimmering(true);
+        helper.onDraw();
+        Shader shader = paint.getShader();
+        assertNotNull(shader);
+
+        for (int i = 0; i < 10; i++) {
+            helper.setGradientX(i * 10);
+            helper.onDraw();
+        }
+        assertSame(shader, paint.getShader());
+
+        layout(WIDTH, HEIGHT * 2);
+        helper.onDraw();
+        assertSame(shader, paint.getShader());
+
+        layout(WIDTH * 2, HEIGHT);
+        helper.onDraw();
+        assertNotSame(shader, paint.getShader());
+    }
+
+    public void testUnchangedColourKeepsGradient() {
+        layout(WIDTH, HEIGHT);
+        helper.setPrimaryColor(0xFF000000);
+        Shader shader = paint.getShader();
+
+        helper.setPrimaryColor(0xFF000000);
+        assertSame(shader, paint.getShader());
+
+        helper.setReflectionColor(0xFFFF0000);
+        assertNotSame(shader, paint.getShader());
+    }
+
+    public void testShaderRemovedWhenNotShimmering() {
+        layout(WIDTH, HEIGHT);
+        helper.setShimmering(true);
+        helper.onDraw();
+        assertNotNull(paint.getShader());
+
+        helper.setShimmering(false);
+        helper.onDraw();
+        assertNull(paint.getShader());
+    }
+
+    public void testDrawBeforeSetUpIsSafe() {
+        helper.setShimmering(true);
+        helper.setGradientX(10);
+        helper.onDraw();
+        assertNull(paint.getShader());
+    }
+
+    public void testFrameDoesNotAllocate() {
+        layout(WIDTH, HEIGHT);
+        helper.setShimmering(true);
+        helper.onDraw();
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        try {
+            for (int i = 0; i < 100; i++) {
+                helper.setGradientX(i);
+                helper.onDraw();
+            }
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        assertEquals(0, Debug.getThreadAllocCount());
+    }
+
+    private void layout(int width, int height) {
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+        // A plain View does not forward its size changes to the helper
+        helper.onSizeChanged();
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import java.util.Locale;
+import java.util.WeakHashMap;
+
+import util.android.textviews.core.LineBreaker;
+import util.android.textviews.core.TextMeasurer;
+
+/**
+ * <p>Maintain one cache of measured text widths for all widgets.</p>
+ *
+ * <p>Lists tend to show the same words, in the same typeface and size, in row after row. Rather
+ * than asking the {@link Paint} to measure them again for every view, widths are cached against
+ * a 64-bit key made from the typeface, text size, letter spacing, scale, paint flags, text
+ * locale, font feature and variation settings and the characters of the word.</p>
+ *
+ * <p>Each typeface is given an id the first time it is seen, held weakly so the cache does not
+ * keep it alive. The id is stored with each width and compared on a hit as well as the key, so a
+ * typeface whose identity hash is reused cannot be given another typeface's widths.</p>
+ *
+ * <p>The cache is a fixed size, 4-way set associative table held in primitive arrays, so lookups
+ * do not allocate. When a set is full the least recently used entry in it is replaced. Hit, miss
+ * and eviction counts are available for tuning the size with {@link #setMaxSize(int)}.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public class AdvanceCache {
+
+    private static final int WAYS = 4;
+    private static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final WeakHashMap<Typeface, Integer> sTypefaceIds = new WeakHashMap<>();
+    // 0 is used for the default typeface
+    private static int sNextTypefaceId = 1;
+
+    private static int sSetMask;
+    private static long[] sKeys;
+    private static int[] sTypefaces;
+    private static float[] sWidths;
+    // 0 marks an empty slot, otherwise the value of sClock when the entry was last used
+    private static long[] sStamps;
+    private static long sClock;
+    private static int sSize;
+
+    private static long sHitCount;
+    private static long sMissCount;
+    private static long sEvictionCount;
+
+    static {
+        allocate(DEFAULT_MAX_SIZE);
+    }
+
+    private AdvanceCache() {
+        throw new IllegalStateException("Utility class. Should not be directly instantiated");
+    }
+
+    /**
+     * Measure part of the text as a single unit, using a cached width if one is available.
+     *
+     * @param paint the paint that will be used to draw the text
+     * @param text the text to measure
+     * @param start index of the first character to measure
+     * @param end index after the last character to measure
+     * @return the advance width of the text
+     */
+    public static float measureText(Paint paint, CharSequence text, int start, int end) {
+        if (start >= end) {
+            return 0;
+        }
+
+        int typeface;
+        synchronized (AdvanceCache.class) {
+            typeface = typefaceId(paint.getTypeface());
+        }
+        long key = key(paint, typeface, text, start, end);
+        synchronized (AdvanceCache.class) {
+            int base = (int) (key & sSetMask) * WAYS;
+            for (int i = base; i < base + WAYS; i++) {
+                if (sStamps[i] != 0 && sKeys[i] == key && sTypefaces[i] == typeface) {
+                    sStamps[i] = ++sClock;
+                    sHitCount++;
+                    return sWidths[i];
+                }
+            }
+            sMissCount++;
+        }
+
+        // Measure outside the lock so other threads are not held up
+        float width = paint.measureText(text, start, end);
+
+        synchronized (AdvanceCache.class) {
+            int base = (int) (key & sSetMask) * WAYS;
+            int slot = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (sStamps[i] == 0) {
+                    slot = i;
+                    break;
+                }
+                if (sKeys[i] == key && sTypefaces[i] == typeface) {
+                    // Another thread got here first
+                    return width;
+                }
+                if (sStamps[i] < sStamps[slot]) {
+                    slot = i;
+                }
+            }
+            if (sStamps[slot] == 0) {
+                sSize++;
+            } else {
+                sEvictionCount++;
+            }
+            sKeys[slot] = key;
+            sTypefaces[slot] = typeface;
+            sWidths[slot] = width;
+            sStamps[slot] = ++sClock;
+        }
+        return width;
+    }
+
+    /**
+     * Measure part of the text as the sum of its space separated words, each of which is
+     * measured using {@link #measureText(Paint, CharSequence, int, int)}. This is used for
+     * lines of text, which are rarely repeated but are made up of words that are. The words are
+     * found by {@link LineBreaker#measureWords(CharSequence, TextMeasurer, int, int)}.
+     *
+     * @param paint the paint that will be used to draw the text
+     * @param text the text to measure
+     * @param start index of the first character to measure
+     * @param end index after the last character to measure
+     * @return the advance width of the text
+     */
+    public static float measureWords(Paint paint, CharSequence text, int start, int end) {
+        return LineBreaker.measureWords(text, new PaintMeasurer(paint), start, end);
+    }
+
+    /**
+     * Change the maximum number of widths held. This clears the cache.
+     *
+     * @param maxSize maximum number of entries, rounded up to a power of two
+     */
+    public static synchronized void setMaxSize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        allocate(maxSize);
+    }
+
+    /** Remove all entries, keeping the hit, miss and eviction counts. */
+    public static synchronized void evictAll() {
+        for (int i = 0; i < sStamps.length; i++) {
+            sStamps[i] = 0;
+        }
+        sSize = 0;
+    }
+
+    public static synchronized int size() {
+        return sSize;
+    }
+
+    public static synchronized int maxSize() {
+        return sKeys.length;
+    }
+
+    public static synchronized long hitCount() {
+        return sHitCount;
+    }
+
+    public static synchronized long missCount() {
+        return sMissCount;
+    }
+
+    public static synchronized long evictionCount() {
+        return sEvictionCount;
+    }
+
+    private static void allocate(int maxSize) {
+        int sets = Integer.highestOneBit(Math.max(1, (maxSize + WAYS - 1) / WAYS));
+        if (sets * WAYS < maxSize) {
+            sets <<= 1;
+        }
+        sSetMask = sets - 1;
+        sKeys = new long[sets * WAYS];
+        sTypefaces = new int[sets * WAYS];
+        sWidths = new float[sets * WAYS];
+        sStamps = new long[sets * WAYS];
+        sSize = 0;
+    }
+
+    /** The id of a typeface, assigned the first time it is seen. Call holding the class lock. */
+    private static int typefaceId(Typeface typeface) {
+        if (typeface == null) {
+            return 0;
+        }
+        Integer id = sTypefaceIds.get(typeface);
+        if (id == null) {
+            id = sNextTypefaceId++;
+            sTypefaceIds.put(typeface, id);
+        }
+        return id;
+    }
+
+    private static long key(Paint paint, int typeface, CharSequence text, int start, int end) {
+        long hash = FNV_OFFSET;
+        hash = (hash ^ typeface) * FNV_PRIME;
+        hash = (hash ^ Float.floatToIntBits(paint.getTextSize())) * FNV_PRIME;
+        hash = (hash ^ Float.floatToIntBits(paint.getTextScaleX())) * FNV_PRIME;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            Locale locale = paint.getTextLocale();
+            hash = (hash ^ (locale != null ? locale.hashCode() : 0)) * FNV_PRIME;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            hash = (hash ^ Float.floatToIntBits(paint.getLetterSpacing())) * FNV_PRIME;
+            hash = (hash ^ hashOf(paint.getFontFeatureSettings())) * FNV_PRIME;
+            hash = (hash ^ (paint.isElegantTextHeight() ? 1 : 0)) * FNV_PRIME;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            hash = (hash ^ hashOf(paint.getFontVariationSettings())) * FNV_PRIME;
+        }
+        hash = (hash ^ paint.getFlags()) * FNV_PRIME;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        hash = (hash ^ (end - start)) * FNV_PRIME;
+
+        // Spread the bits so the low bits used to pick a set are well mixed
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /** The hash of a paint setting, which String caches, so this does not allocate. */
+    private static int hashOf(String setting) {
+        return setting != null ? setting.hashCode() : 0;
+    }
+}
@@ -17,18 +17,22 @@
 package util.android.textviews;
 
 import android.animation.Animator;
-import android.animation.ObjectAnimator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.Rect;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.Layout;
 import android.text.SpannableStringBuilder;
+import android.text.StaticLayout;
 import android.text.Spanned;
+import android.text.TextPaint;
+import android.text.TextUtils;
 import android.text.style.ForegroundColorSpan;
 import android.util.AttributeSet;
 import android.view.View;
@@ -49,6 +53,15 @@ import android.widget.BaseAdapter;
  */
 public class ExpandableTextView extends FontTextView {
 
+    /**
+     * The payload passed to RecyclerView.Adapter#notifyItemChanged(int, Object) by a
+     * {@link RecyclerViewExpansionListener} when the view is expanded or collapsed. The view has
+     * already updated itself, so a holder that sees this payload does not need to bind the item
+     * again.
+     */
+    public static final String PAYLOAD_EXPANSION =
+            "util.android.textviews.ExpandableTextView.EXPANSION";
+
     private static final int DEFAULT_TRIM = 4;
     private static final String ELLIPSIS = "\u2026";
     private OnClickListener mClick;
@@ -58,6 +71,25 @@ public class ExpandableTextView extends FontTextView {
     private boolean trim = true;
     private int lineLength;
     private BaseAdapter adapter;
+    private OnExpansionChangeListener expansionListener;
+    private ExpansionStateStore stateStore;
+    private long itemId;
+    // The collapsed text, cached for the inputs it was computed from
+    private SpannableStringBuilder mCollapsed;
+    private String mCollapsedSource;
+    private String mCollapsedExpansion;
+    private int mCollapsedWidth;
+    private int mCollapsedTrim;
+    // The text of the view once the collapsed text was set, to spot when it is still showing
+    private CharSequence mCollapsedText;
+    // Expand/collapse animation: the measured and drawn height moves from mClipFrom to mClipTo
+    private ValueAnimator mClipAnimator;
+    private float mClipFraction = -1;
+    private int mClipFrom;
+    private int mClipTo;
+    // While expanding, the full text is drawn from this layout, as TextView only lays it out once
+    // the animation ends
+    private Layout mExpandLayout;
 
 
     public ExpandableTextView(Context context) {
@@ -118,85 +150,160 @@ public class ExpandableTextView extends FontTextView {
         }
     }
 
-    private void addEllipse() {
+    void addEllipse() {
         Layout l = getLayout();
-        if (l != null) {
-            int lines = l.getLineCount();
-            if (lines > 0) {
-                if (l.getEllipsisCount(lines - 1) > 0) {
-                    float expSize = getPaint().measureText(ELLIPSIS + " " + getExpansionText().toString());
-                    boolean needsShortening = (l.getLineWidth(lines - 1) >= l.getWidth() ||
-                            l.getLineWidth(lines - 1) + expSize >= l.getWidth());
-
-                    float expDif = (l.getLineWidth(lines - 1) + expSize) - l.getWidth();
-
-                    SpannableStringBuilder text;
-
-                    ForegroundColorSpan expansionSpan = new ForegroundColorSpan((expandTextColour));
-
-                    {
-                        if (needsShortening) {
-                            int start = 0;
-                            if (expDif <= 0) {
-                                start = l.getLineEnd(lines - 1) - (getExpansionText().length() +
-                                        ELLIPSIS.length());
-                            } else {
-                                if (l.getWidth() - (l.getLineWidth(lines - 1) + expSize) > 0) {
-                                    for (int i = (int) expDif; i > 0; i--) {
-                                        try {
-                                            String st = getText().subSequence(l.getLineStart(lines - 1), l.getLineEnd(lines - 1) - i).toString();
-
-                                            float tSize = getPaint().measureText(st);
-
-                                            float newDif = (tSize + expSize) - l.getWidth();
-                                            if (newDif >= 0) {
-                                                break;
-                                            }
-                                            start = l.getLineEnd(lines - 1) - i;
-                                        } catch (Exception ignored) {
-
-                                        }
-                                    }
-                                } else {
-                                    for (int i = l.getLineEnd(lines - 1); i > 0; i--) {
-                                        try {
-                                            String st = getText().subSequence(l.getLineStart(lines - 1), l.getLineEnd(lines - 1) - i).toString();
-
-                                            float tSize = getPaint().measureText(st);
-
-                                            float newDif = (tSize + expSize) - l.getWidth();
-                                            if (newDif >= 0) {
-                                                break;
-                                            }
-                                            start = l.getLineEnd(lines - 1) - i;
-                                        } catch (Exception ignored) {
-
-                                        }
-                                    }
-                                }
-                            }
-                            String s = getText().subSequence(0, start).toString();
-                            if (s.endsWith("\n")) {
-                                s = s.substring(0, s.length() - 1);
-                                start--;
-                            }
-                            text = SpannableStringBuilder.valueOf(s + ELLIPSIS + " " + getExpansionText());
-                            text.setSpan(expansionSpan, start + ELLIPSIS.length() + 1, s.length() + ELLIPSIS.length() + getExpansionText().length() + 1, Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
-                        } else {
-                            int start = l.getLineEnd(lines - 1);
-                            String s = getText().subSequence(0, start).toString();
-                            if (s.endsWith("\n")) {
-                                s = s.substring(0, s.length() - 1);
-                                start--;
-                            }
-                            text = SpannableStringBuilder.valueOf(s + " " + getExpansionText());
-                            text.setSpan(expansionSpan, start + 1, s.length() + getExpansionText().length() + 1, Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
-                        }
-                    }
-                    setText(text);
+        if (l == null || getText() == mCollapsedText) {
+            // Nothing to lay out yet, or the collapsed text is already showing
+            return;
+        }
+        int lines = l.getLineCount();
+        if (lines <= 0 || l.getEllipsisCount(lines - 1) <= 0) {
+            return;
+        }
+
+        long start = TextViewMetrics.begin(TextViewMetrics.EVENT_ADD_ELLIPSE);
+        try {
+            CharSequence source = getText();
+            CharSequence expansion = getExpansionText();
+            int width = l.getWidth();
+            if (mCollapsed == null
+                    || width != mCollapsedWidth
+                    || lineLength != mCollapsedTrim
+                    || !TextUtils.equals(expansion, mCollapsedExpansion)
+                    || !TextUtils.equals(source, mCollapsedSource)) {
+                mCollapsed = collapse(l, source, expansion);
+                mCollapsedSource = source.toString();
+                mCollapsedExpansion = expansion.toString();
+                mCollapsedWidth = width;
+                mCollapsedTrim = lineLength;
+            }
+            setText(mCollapsed);
+            mCollapsedText = getText();
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_ADD_ELLIPSE, start);
+        }
+    }
+
+    /**
+     * Build the collapsed text: the text up to the point on the last visible line where the
+     * ellipsis and expansion text still fit, followed by them.
+     */
+    private SpannableStringBuilder collapse(
+            Layout l, CharSequence source, CharSequence expansionText) {
+        int lastLine = l.getLineCount() - 1;
+        int lineStart = l.getLineStart(lastLine);
+        int lineEnd = l.getLineEnd(lastLine);
+        int width = l.getWidth();
+
+        String expansion = ELLIPSIS + " " + expansionText;
+        float expSize = AdvanceCache.measureText(getPaint(), expansion, 0, expansion.length());
+        boolean needsShortening = l.getLineWidth(lastLine) + expSize >= width;
+
+        int end = lineEnd;
+        if (needsShortening) {
+            end = findCut(source, lineStart, lineEnd, width - expSize);
+        }
+        if (end > 0 && source.charAt(end - 1) == '\n') {
+            end--;
+        }
+
+        SpannableStringBuilder text = new SpannableStringBuilder(source, 0, end);
+        if (needsShortening) {
+            text.append(ELLIPSIS);
+        }
+        text.append(' ');
+        int expansionStart = text.length();
+        text.append(expansionText);
+        text.setSpan(new ForegroundColorSpan(expandTextColour), expansionStart, text.length(),
+                Spanned.SPAN_INCLUSIVE_EXCLUSIVE);
+        return text;
+    }
+
+    /**
+     * Find the end of the longest part of a line that is narrower than the limit. Whole words are
+     * found by binary search over the widths of the line up to the end of each word, which are
+     * built from the cached width of each word. Then as much of the next word as fits is found by
+     * binary search too, measuring its prefixes directly as they are unlikely to be seen again
+     * and would only push words out of the {@link AdvanceCache}.
+     *
+     * @param text the text of the view
+     * @param start the start of the line
+     * @param end the end of the line
+     * @param limit the width the kept text must be narrower than
+     * @return the end of the text to keep
+     */
+    private int findCut(CharSequence text, int start, int end, float limit) {
+        Paint paint = getPaint();
+        int wordCount = 1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ' ') {
+                wordCount++;
+            }
+        }
+        // The end of each word, and the width of the line up to there
+        int[] wordEnds = new int[wordCount];
+        float[] widths = new float[wordCount];
+        float width = 0;
+        int wordStart = start;
+        int word = 0;
+        for (int i = start; i <= end; i++) {
+            if (i == end || text.charAt(i) == ' ') {
+                width += AdvanceCache.measureText(paint, text, wordStart, i);
+                wordEnds[word] = i;
+                widths[word++] = width;
+                if (i < end) {
+                    width += AdvanceCache.measureText(paint, text, i, i + 1);
                 }
+                wordStart = i + 1;
+            }
+        }
+
+        // The number of whole words that fit
+        int lo = 0;
+        int hi = wordCount;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (widths[mid - 1] < limit) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (lo == wordCount) {
+            return end;
+        }
+
+        int cut = lo > 0 ? wordEnds[lo - 1] : start;
+        int partStart = lo > 0 ? cut + 1 : start;
+        float partLimit = limit - (lo > 0
+                ? widths[lo - 1] + AdvanceCache.measureText(paint, text, cut, partStart)
+                : 0);
+        int charsLo = partStart;
+        int charsHi = wordEnds[lo];
+        while (charsLo < charsHi) {
+            int mid = (charsLo + charsHi + 1) >>> 1;
+            if (paint.measureText(text, partStart, mid) < partLimit) {
+                charsLo = mid;
+            } else {
+                charsHi = mid - 1;
             }
         }
+        // Do not split a surrogate pair
+        if (charsLo > partStart && Character.isHighSurrogate(text.charAt(charsLo - 1))) {
+            charsLo--;
+        }
+        return charsLo > partStart ? charsLo : cut;
+    }
+
+    @Override
+    void onTextMetricsChanged() {
+        // The collapsed text was cut to fit with the old typeface or size
+        mCollapsed = null;
+        if (mCollapsedText != null && getText() == mCollapsedText) {
+            // Lay out the full text again so that it is collapsed afresh
+            mCollapsedText = null;
+            setText(originalText);
+        }
     }
 
     public CharSequence getExpansionText() {
@@ -227,106 +334,185 @@ public class ExpandableTextView extends FontTextView {
     }
 
     public void setContracted(boolean state) {
+        setContracted(state, true);
+    }
+
+    /**
+     * @param toggled false when the state is being applied while binding a list item, in which
+     *                case the change is not animated and nobody is notified
+     */
+    private void setContracted(boolean state, boolean toggled) {
         if (trim == state) {
             requestLayout();
             return;
         }
+        // Finish any animation still running, committing its layout
+        if (mClipAnimator != null) {
+            mClipAnimator.end();
+        }
         this.trim = state;
-        if (!trim) {
-            Rect bounds = new Rect();
-            Paint paint = getPaint();
-            paint.getTextBounds(originalText.toString(), 0, originalText.toString().length(), bounds);
-
-            int width = (int) Math.ceil((float) bounds.width() / getWidth());
-
-            final int bob = width + 1;
-            setText(originalText, true);
-            ObjectAnimator animation = ObjectAnimator.ofInt(
-                    this,
-                    "maxLines",
-                    this.getLineCount(), bob);
-            animation.setDuration((long) 12 * bob);
-            animation.addListener(new Animator.AnimatorListener() {
-                @Override
-                public void onAnimationStart(Animator animation) {
-
-                }
 
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    setMaxLines(bob);
-                    requestLayout();
-                }
-
-                @Override
-                public void onAnimationCancel(Animator animation) {
-
-                }
-
-                @Override
-                public void onAnimationRepeat(Animator animation) {
+        final boolean animate = toggled && getWidth() > 0 && getHeight() > 0;
+        Layout l = getLayout();
 
-                }
-            });
-            animation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+        if (!trim) {
+            // Grow the view to fit the full text, and only lay out the full text at the end
+            Runnable commit = new Runnable() {
                 @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    setMaxLines((Integer) animation.getAnimatedValue());
+                public void run() {
+                    mExpandLayout = null;
+                    setMaxLines(Integer.MAX_VALUE);
                     setText(originalText, true);
-                    requestLayout();
                 }
-            });
-            animation.start();
-
+            };
+            if (animate && l != null) {
+                mExpandLayout = createExpandedLayout(l);
+                int to = mExpandLayout.getHeight()
+                        + getCompoundPaddingTop() + getCompoundPaddingBottom();
+                animateClip(getHeight(), to, getAnimationDuration(mExpandLayout.getLineCount()),
+                        commit);
+            } else {
+                commit.run();
+            }
         } else {
-            Rect bounds = new Rect();
-            Paint paint = getPaint();
-            paint.getTextBounds(originalText.toString(), 0, originalText.toString().length(), bounds);
-
-            int width = (int) Math.ceil((float) bounds.width() / getWidth());
-
-            final int bob = width + 1;
-            ObjectAnimator animation = ObjectAnimator.ofInt(
-                    this,
-                    "maxLines",
-                    this.getLineCount(), lineLength);
-            animation.setDuration((long) 12 * bob);
-            animation.addListener(new Animator.AnimatorListener() {
+            // Shrink the view with the full text still laid out, and only lay out the trimmed
+            // text at the end
+            Runnable commit = new Runnable() {
                 @Override
-                public void onAnimationStart(Animator animation) {
-
-                }
-
-                @Override
-                public void onAnimationEnd(Animator animation) {
+                public void run() {
                     setMaxLines(lineLength);
                     setText(originalText, true);
                     addEllipse();
                 }
+            };
+            if (animate && l != null) {
+                int to = l.getLineTop(Math.min(lineLength, l.getLineCount()))
+                        + getCompoundPaddingTop() + getCompoundPaddingBottom();
+                animateClip(getHeight(), to, getAnimationDuration(l.getLineCount()), commit);
+            } else {
+                commit.run();
+            }
+        }
 
-                @Override
-                public void onAnimationCancel(Animator animation) {
+        if (!toggled) {
+            return;
+        }
+        if (stateStore != null) {
+            stateStore.setExpanded(itemId, !trim);
+        }
+        if (adapter != null) {
+            adapter.notifyDataSetChanged();
+        }
+        if (expansionListener != null) {
+            expansionListener.onExpansionChanged(this, !trim);
+        }
 
-                }
+    }
 
-                @Override
-                public void onAnimationRepeat(Animator animation) {
+    /** About 12ms per line, the pace the animation has always had. */
+    private static long getAnimationDuration(int lineCount) {
+        return (long) 12 * (lineCount + 1);
+    }
 
+    /**
+     * Lay out the full text the way TextView will once the view has expanded, so that it can be
+     * drawn while the view grows without TextView laying out the full text first.
+     *
+     * @param l The current layout, whose width and alignment are used
+     */
+    private Layout createExpandedLayout(Layout l) {
+        float spacingMult = 1f;
+        float spacingAdd = 0f;
+        boolean includePad = true;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            spacingMult = getLineSpacingMultiplier();
+            spacingAdd = getLineSpacingExtra();
+            includePad = getIncludeFontPadding();
+        }
+        return new StaticLayout(originalText, getPaint(), l.getWidth(), l.getAlignment(),
+                spacingMult, spacingAdd, includePad);
+    }
+
+    /**
+     * Animate the height of the view. The measured height follows the animation, so that the
+     * views around it move with it, and the drawing is clipped to it; the text is not laid out
+     * again until the end.
+     *
+     * @param from     Height to start from
+     * @param to       Height to finish at
+     * @param duration Length of the animation in milliseconds
+     * @param onEnd    Optional action to run once the animation has finished
+     */
+    private void animateClip(int from, int to, long duration, final Runnable onEnd) {
+        mClipFrom = from;
+        mClipTo = to;
+        mClipFraction = 0;
+        mClipAnimator = ValueAnimator.ofFloat(0, 1);
+        mClipAnimator.setDuration(duration);
+        mClipAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                mClipFraction = animation.getAnimatedFraction();
+                requestLayout();
+                invalidate();
+            }
+        });
+        mClipAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                mClipAnimator = null;
+                mClipFraction = -1;
+                invalidate();
+                if (onEnd != null) {
+                    onEnd.run();
                 }
-            });
-            animation.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    requestLayout();
-                }
-            });
-            animation.start();
+            }
+        });
+        mClipAnimator.start();
+    }
+
+    private int getClipHeight() {
+        return Math.round(mClipFrom + (mClipTo - mClipFrom) * mClipFraction);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        if (mClipFraction >= 0) {
+            // An EXACTLY height is kept as it is, and the drawing is only clipped
+            setMeasuredDimension(getMeasuredWidth(),
+                    resolveSize(getClipHeight(), heightMeasureSpec));
         }
+    }
 
-        if (adapter != null) {
-            adapter.notifyDataSetChanged();
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mExpandLayout == null) {
+            super.onDraw(canvas);
+            return;
         }
+        // TextView still holds the collapsed text, so draw the full text being revealed
+        TextPaint paint = getPaint();
+        paint.setColor(getCurrentTextColor());
+        paint.drawableState = getDrawableState();
+        int saveCount = canvas.save();
+        canvas.translate(getCompoundPaddingLeft(), getExtendedPaddingTop());
+        mExpandLayout.draw(canvas);
+        canvas.restoreToCount(saveCount);
+    }
 
+    @Override
+    public void draw(Canvas canvas) {
+        if (mClipFraction < 0) {
+            super.draw(canvas);
+            return;
+        }
+        float height = getClipHeight();
+        int saveCount = canvas.save();
+        canvas.clipRect(getScrollX(), getScrollY(), getScrollX() + getWidth(),
+                getScrollY() + height);
+        super.draw(canvas);
+        canvas.restoreToCount(saveCount);
     }
 
     public void setOnViewClickListener(OnClickListener listener) {
@@ -337,8 +523,38 @@ public class ExpandableTextView extends FontTextView {
         this.adapter = adapter;
     }
 
+    /**
+     * <p>Be told when the user expands or collapses this view. Use a
+     * {@link RecyclerViewExpansionListener} to notify a RecyclerView adapter.</p>
+     *
+     * @param listener The listener, or null to remove it
+     */
+    public void setOnExpansionChangeListener(OnExpansionChangeListener listener) {
+        this.expansionListener = listener;
+    }
+
+    /**
+     * <p>Show the expanded state of a list item and remember it in the store when it changes.
+     * Call this after setting the item's text, as setting new text collapses the view.</p>
+     *
+     * <p>The state is applied without animating, as the view is being bound rather than
+     * toggled.</p>
+     *
+     * @param store  The store holding the state of every item
+     * @param itemId The stable id of the item being bound
+     */
+    public void bindState(ExpansionStateStore store, long itemId) {
+        // The view may be recycled part way through animating the previous item
+        if (mClipAnimator != null) {
+            mClipAnimator.end();
+        }
+        this.stateStore = store;
+        this.itemId = itemId;
+        setContracted(!store.isExpanded(itemId), false);
+    }
+
     public void setExpandTextColour(String color) {
-        expandTextColour = Color.parseColor(color);
+        setExpandTextColour(Color.parseColor(color));
     }
 
     @Override
@@ -370,6 +586,7 @@ public class ExpandableTextView extends FontTextView {
 
     public void setExpandTextColour(int color) {
         expandTextColour = color;
+        mCollapsed = null;
     }
 
     public void setTrim(int trim) {
@@ -377,6 +594,18 @@ public class ExpandableTextView extends FontTextView {
         setMaxLines(trim);
     }
 
+    /**
+     * Receives a call when the user expands or collapses an {@link ExpandableTextView}. It is not
+     * called when the state is applied by {@link #bindState(ExpansionStateStore, long)}.
+     */
+    public interface OnExpansionChangeListener {
+        /**
+         * @param view     The view that changed
+         * @param expanded Whether it is now expanded
+         */
+        void onExpansionChanged(ExpandableTextView view, boolean expanded);
+    }
+
     static class SavedState extends BaseSavedState {
         //required field that makes Parcelables from a Parcel
         public static final Parcelable.Creator<SavedState> CREATOR =
@@ -0,0 +1,79 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.os.Bundle;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * <p>Remembers which items of a list have their {@link ExpandableTextView} expanded, keyed by
+ * the item's stable id, so that the state survives the view being recycled for another item.</p>
+ *
+ * <p>Typically an adapter owns one store and passes it to
+ * {@link ExpandableTextView#bindState(ExpansionStateStore, long)} for each row it binds. The
+ * state can be kept across configuration changes with {@link #onSaveInstanceState(Bundle)} and
+ * {@link #onRestoreInstanceState(Bundle)}.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public class ExpansionStateStore {
+
+    private static final String KEY_EXPANDED =
+            "util.android.textviews.ExpansionStateStore.expanded";
+
+    private final Set<Long> expanded = new HashSet<>();
+
+    public boolean isExpanded(long itemId) {
+        return expanded.contains(itemId);
+    }
+
+    public void setExpanded(long itemId, boolean isExpanded) {
+        if (isExpanded) {
+            expanded.add(itemId);
+        } else {
+            expanded.remove(itemId);
+        }
+    }
+
+    /** Collapse every item. */
+    public void clear() {
+        expanded.clear();
+    }
+
+    public void onSaveInstanceState(Bundle outState) {
+        long[] ids = new long[expanded.size()];
+        int i = 0;
+        for (Long id : expanded) {
+            ids[i++] = id;
+        }
+        outState.putLongArray(KEY_EXPANDED, ids);
+    }
+
+    public void onRestoreInstanceState(Bundle savedInstanceState) {
+        expanded.clear();
+        long[] ids = savedInstanceState != null
+                ? savedInstanceState.getLongArray(KEY_EXPANDED) : null;
+        if (ids != null) {
+            for (long id : ids) {
+                expanded.add(id);
+            }
+        }
+    }
+}
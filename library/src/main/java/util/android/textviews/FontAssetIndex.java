@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.content.res.AssetManager;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An index of the font files in the assets, built once by listing the font directories.
+ *
+ * <p>A font can be found by its file name, or by its name without an extension. When several
+ * files share a name, the one in the earliest directory wins, and within a directory the
+ * extension that comes first in the priority list wins.
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class FontAssetIndex {
+
+    private static final String LOG_TAG = FontAssetIndex.class.getSimpleName();
+
+    /** Asset path of each font, keyed by its file name. */
+    private final Map<String, String> files = new HashMap<>();
+    /** Asset path of each font, keyed by its file name without the extension. */
+    private final Map<String, String> names = new HashMap<>();
+
+    /**
+     * List the directories and index the files found in them.
+     *
+     * @param assets the assets to index
+     * @param directories directories to search, relative to the assets root; "" is the root
+     * @param extensions extensions, including the dot, that can be left off a font name, in order
+     *     of preference
+     */
+    FontAssetIndex(AssetManager assets, String[] directories, String[] extensions) {
+        for (String directory : directories) {
+            String[] list;
+            try {
+                list = assets.list(directory);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Unable to list assets in: " + directory, e);
+                continue;
+            }
+            if (list == null) {
+                continue;
+            }
+
+            String prefix = directory.isEmpty() || directory.endsWith("/")
+                    ? directory : directory + "/";
+            // Add the names extension by extension so that the preferred one is put first
+            for (String extension : extensions) {
+                for (String file : list) {
+                    if (file.endsWith(extension) && file.length() > extension.length()) {
+                        putIfAbsent(names,
+                                file.substring(0, file.length() - extension.length()),
+                                prefix + file);
+                    }
+                }
+            }
+            for (String file : list) {
+                putIfAbsent(files, file, prefix + file);
+            }
+        }
+    }
+
+    /**
+     * Find the asset path of a font.
+     *
+     * @param fontName the file name of the font, with or without its extension
+     * @return the path of the font within the assets, or null if there is no such font
+     */
+    String find(String fontName) {
+        String path = files.get(fontName);
+        return path != null ? path : names.get(fontName);
+    }
+
+    private static void putIfAbsent(Map<String, String> map, String key, String value) {
+        if (!map.containsKey(key)) {
+            map.put(key, value);
+        }
+    }
+}
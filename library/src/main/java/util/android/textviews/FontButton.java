@@ -18,6 +18,7 @@ package util.android.textviews;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Typeface;
 import android.util.AttributeSet;
 
 
@@ -29,6 +30,12 @@ import android.util.AttributeSet;
  */
 public class FontButton extends android.support.v7.widget.AppCompatButton {
 
+    /**
+     * The font being loaded from the attributes. Null while the super constructor sets the
+     * initial typeface.
+     */
+    private final PendingTypeface mPendingTypeface = new PendingTypeface();
+
     public FontButton(Context context) {
         super(context);
     }
@@ -55,10 +62,8 @@ public class FontButton extends android.support.v7.widget.AppCompatButton {
             }
         }
         a.recycle();
-        if (!isInEditMode()) {
-            try {
-                setTypeface(TypefaceCache.loadTypeface(getContext(), fontFamily));
-            } catch (Exception ignored) {}
+        if (!isInEditMode() && fontFamily != null) {
+            mPendingTypeface.load(this, fontFamily, null);
         }
     }
 
@@ -68,4 +73,12 @@ public class FontButton extends android.support.v7.widget.AppCompatButton {
         init(context, attrs);
     }
 
+    @Override
+    public void setTypeface(Typeface tf) {
+        // An explicit typeface wins over a font that is still loading
+        if (mPendingTypeface != null) {
+            mPendingTypeface.cancel();
+        }
+        super.setTypeface(tf);
+    }
 }
@@ -18,6 +18,7 @@ package util.android.textviews;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Typeface;
 import android.util.AttributeSet;
 import android.util.LruCache;
 import android.widget.CheckedTextView;
@@ -47,6 +48,12 @@ import android.widget.RemoteViews;
 @RemoteViews.RemoteView
 public class FontCheckedTextView extends android.support.v7.widget.AppCompatCheckedTextView {
 
+    /**
+     * The font being loaded from the attributes. Null while the super constructor sets the
+     * initial typeface.
+     */
+    private final PendingTypeface mPendingTypeface = new PendingTypeface();
+
     public FontCheckedTextView(Context context, AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
         init(attrs);
@@ -68,10 +75,8 @@ public class FontCheckedTextView extends android.support.v7.widget.AppCompatChec
             }
         }
         a.recycle();
-        if (!isInEditMode()) {
-            try {
-                setTypeface(TypefaceCache.loadTypeface(getContext(), fontFamily));
-            } catch (Exception ignored) {}
+        if (!isInEditMode() && fontFamily != null) {
+            mPendingTypeface.load(this, fontFamily, null);
         }
     }
 
@@ -85,4 +90,12 @@ public class FontCheckedTextView extends android.support.v7.widget.AppCompatChec
         super(context);
     }
 
-}
\ No newline at end of file
+    @Override
+    public void setTypeface(Typeface tf) {
+        // An explicit typeface wins over a font that is still loading
+        if (mPendingTypeface != null) {
+            mPendingTypeface.cancel();
+        }
+        super.setTypeface(tf);
+    }
+}
@@ -16,44 +16,43 @@
 
 package util.android.textviews;
 
+import android.annotation.TargetApi;
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.os.Build;
+import android.support.v4.text.PrecomputedTextCompat;
 import android.support.v7.widget.AppCompatTextView;
 import android.text.Editable;
 import android.text.Layout;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
+import android.text.Spanned;
 import android.text.TextPaint;
 import android.text.TextUtils;
 import android.text.TextWatcher;
 import android.text.method.LinkMovementMethod;
 import android.text.method.MovementMethod;
 import android.text.method.Touch;
-import android.text.style.CharacterStyle;
 import android.text.style.ClickableSpan;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.LruCache;
-import android.util.Patterns;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.widget.RemoteViews;
 import android.widget.TextView;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+
+import util.android.textviews.core.LinkTokenizer;
 
 /**
  * An extension to {@link android.support.v7.widget.AppCompatTextView} that supports custom fonts.
@@ -94,7 +93,7 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
     private static final String LOG_TAG = FontTextView.class.getSimpleName();
     private static final boolean DEBUG = false;
 
-    private static final CharSequence ELLIPSIS = "\u2026";
+    static final CharSequence ELLIPSIS = "\u2026";
 
     // Enum for the "typeface" XML parameter.
     private static final int SANS = 1;
@@ -102,23 +101,51 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
     private static final int MONOSPACE = 3;
 
     private boolean justify = false;
+    /** Whether to let the platform justify the text, where it can. */
+    private boolean mNativeJustify = true;
     private boolean autoMax = false;
     private boolean mAllCaps = false;
     private boolean mWordEllipsize = false;
-    private int mFirstLineTextHeight = 0;
-    private Rect mLineBounds = new Rect();
-    private Pattern hyperlinkPattern = Patterns.WEB_URL;
-    private Pattern emailPattern = Patterns.EMAIL_ADDRESS;
-    private Pattern hashtagPattern = Pattern.compile("(#\\w+)");
-    private Pattern screenNamePattern = Pattern.compile("(@\\w+)");
+    private WordLayout mWordLayout;
+    /** Lines computed on another thread, valid while the text is {@link #mPrecomputedText}. */
+    private WordLayout mPrecomputedLayout;
+    private CharSequence mPrecomputedText;
+    /**
+     * The font being loaded from the attributes. Null while the TextView constructor sets the
+     * initial typeface.
+     */
+    private final PendingTypeface mPendingTypeface = new PendingTypeface();
+    private boolean mWatchingText;
+    private boolean mSettingText;
+    private int mRelinkStart = -1;
+    private int mRelinkEnd;
+    private LinkIndex mLinkIndex;
+    /** Whether the link index must be rebuilt from the text before it is used. */
+    private boolean mLinkIndexStale = true;
+    private int mTouchSlop = -1;
     private int linkType = LINK_TYPE_NONE;
     private int linkTextColor = Color.BLUE;
 
     private int attrMaxLines = Integer.MAX_VALUE;
+    /**
+     * The defaults of the paint, re-applied only when they change or a span has changed the
+     * paint. Null while the TextView constructor sets the initial text attributes.
+     */
+    private final PaintState mPaintState = new PaintState();
+    private final Runnable mTextMetricsChanged =
+            new Runnable() {
+                @Override
+                public void run() {
+                    onTextMetricsChanged();
+                }
+            };
+    /** The height and line height {@link #mAutoMaxLines} was computed for, or -1. */
+    private int mAutoMaxHeight = -1;
+    private float mAutoMaxLineHeight = -1;
+    private int mAutoMaxLines = -1;
 
     private boolean linkUnderline = false;
     private boolean hitLink = false;
-    private List<Hyperlink> links = new ArrayList<>();
     private OnLinkClickListener listener;
 
     public FontTextView(Context context, AttributeSet attrs, int defStyle) {
@@ -163,18 +190,14 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
 
         ta.recycle();
         if (!isInEditMode() && fontFamily != null) {
-            try {
-                setTypeface(TypefaceCache.loadTypeface(getContext(), fontFamily));
-            } catch (Exception eek) {
-                setTypefaceFromAttrs(fontFamily, typefaceIndex, styleIndex);
-            }
+            loadTypeface(fontFamily, typefaceIndex, styleIndex);
         }
 
         attrMaxLines = getMaxLines();
+        updateJustificationMode();
 
         if (linkType != LINK_TYPE_NONE) {
             setLinkText(getText());
-            this.addTextChangedListener(this);
         }
     }
 
@@ -188,12 +211,143 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
 
     public void setLinkType(int type) {
         linkType = type;
+        if (type != LINK_TYPE_NONE && !mWatchingText) {
+            // Keep links up to date as the text is edited
+            addTextChangedListener(this);
+            mWatchingText = true;
+        }
+    }
+
+    /**
+     * Apply the font from the assets, using the cached Typeface if it has already been loaded
+     * and otherwise loading it in the background. Until the font arrives the default typeface is
+     * used.
+     */
+    private void loadTypeface(
+            final String fontFamily, final int typefaceIndex, final int styleIndex) {
+        mPendingTypeface.load(
+                this,
+                fontFamily,
+                new TypefaceCache.Callback() {
+                    @Override
+                    public void onTypefaceLoaded(String family, Typeface typeface) {
+                        setTypefaceFromAttrs(family, typefaceIndex, styleIndex);
+                    }
+                });
+    }
+
+    @Override
+    public void setTypeface(Typeface tf) {
+        // An explicit typeface wins over a font that is still loading
+        if (mPendingTypeface != null) {
+            mPendingTypeface.cancel();
+        }
+        super.setTypeface(tf);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    public void setTypeface(Typeface tf, int style) {
+        super.setTypeface(tf, style);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    public void setTextColor(int color) {
+        super.setTextColor(color);
+        invalidatePaintState();
+    }
+
+    @Override
+    public void setTextColor(ColorStateList colors) {
+        super.setTextColor(colors);
+        invalidatePaintState();
+    }
+
+    @Override
+    public void setTextSize(int unit, float size) {
+        super.setTextSize(unit, size);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    public void setTextScaleX(float size) {
+        super.setTextScaleX(size);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public void setLetterSpacing(float letterSpacing) {
+        super.setLetterSpacing(letterSpacing);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    public void setFontFeatureSettings(String fontFeatureSettings) {
+        super.setFontFeatureSettings(fontFeatureSettings);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    public void setPaintFlags(int flags) {
+        super.setPaintFlags(flags);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    public void setTextAppearance(Context context, int resId) {
+        super.setTextAppearance(context, resId);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    @TargetApi(Build.VERSION_CODES.M)
+    public void setTextAppearance(int resId) {
+        super.setTextAppearance(resId);
+        invalidateTextMetrics();
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        invalidatePaintState();
+    }
+
+    /**
+     * Record that a text attribute has changed, so the paint defaults are captured again and any
+     * layout measured with the old ones is rebuilt.
+     */
+    private void invalidatePaintState() {
+        if (mPaintState != null) {
+            mPaintState.invalidate();
+        }
+    }
+
+    /**
+     * Record that an attribute that changes the width of the text has changed, such as the
+     * typeface or text size.
+     */
+    private void invalidateTextMetrics() {
+        if (mPaintState != null) {
+            mPaintState.invalidate();
+            onTextMetricsChanged();
+        }
+    }
+
+    /**
+     * Called when an attribute that changes the width of the text has changed, such as the
+     * typeface or text size, so that subclasses can drop anything they measured with the old
+     * one. This is not called while the TextView constructor sets the initial attributes.
+     */
+    void onTextMetricsChanged() {
     }
 
     private void setTypefaceFromAttrs(String familyName, int typefaceIndex, int styleIndex) {
         Typeface tf;
         if (familyName != null) {
-            tf = Typeface.create(familyName, styleIndex);
+            tf = TypefaceCache.getSystemTypeface(familyName, styleIndex);
             if (tf != null) {
                 setTypeface(tf);
                 return;
@@ -236,104 +390,360 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
     }
 
     public void setLinkText(CharSequence text) {
-        links.clear();
-
-        if (containsLinkType(LINK_TYPE_WEB)) {
-            gatherLinks(text, hyperlinkPattern, LINK_TYPE_WEB);
-        }
-        if (containsLinkType(LINK_TYPE_HASHTAG)) {
-            gatherLinks(text, hashtagPattern, LINK_TYPE_HASHTAG);
-        }
-        if (containsLinkType(LINK_TYPE_SCREENNAME)) {
-            gatherLinks(text, screenNamePattern, LINK_TYPE_SCREENNAME);
-        }
-        if (containsLinkType(LINK_TYPE_EMAIL)) {
-            gatherLinks(text, emailPattern, LINK_TYPE_EMAIL);
+        long start = TextViewMetrics.begin(TextViewMetrics.EVENT_LINK_SCAN);
+        PrecomputedLinks links;
+        try {
+            links = PrecomputedLinks.create(text, linkType);
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_LINK_SCAN, start);
         }
+        setLinkText(links);
+    }
 
+    /**
+     * Set the text along with links that have already been found, e.g. on a background thread
+     * with {@link PrecomputedLinks#create(CharSequence, int)}.
+     *
+     * @param links The text and its links
+     */
+    public void setLinkText(PrecomputedLinks links) {
+        CharSequence text = links.getText();
         SpannableString linkableText = new SpannableString(text);
 
-        if (!links.isEmpty()) {
-            for (Hyperlink linkSpec : links) {
-                linkableText.setSpan(linkSpec.span, linkSpec.start, linkSpec.end, 0);
+        if (mLinkIndex == null) {
+            mLinkIndex = new LinkIndex();
+        }
+        mLinkIndex.clear();
+
+        int count = links.getLinkCount();
+        if (count != 0) {
+            for (int i = 0; i < count; i++) {
+                int start = links.getLinkStart(i);
+                int end = links.getLinkEnd(i);
+                LinkSpan span =
+                        new LinkSpan(
+                                text.subSequence(start, end).toString(),
+                                links.getLinkType(i),
+                                linkTextColor,
+                                linkUnderline);
+                linkableText.setSpan(span, start, end, 0);
+                mLinkIndex.add(span, start, end);
             }
 
-            MovementMethod m = getMovementMethod();
-            if ((!(m instanceof LinkMovementMethod)) && getLinksClickable()) {
-                setMovementMethod(LocalLinkMovementMethod.getInstance());
-            }
+            setLinkMovementMethod();
         }
 
         setText(linkableText);
+        // Clickable spans that came with the text are not in the index
+        mLinkIndexStale = text instanceof Spanned
+                && ((Spanned) text).nextSpanTransition(0, text.length(), ClickableSpan.class)
+                        < text.length();
     }
 
     /**
-     * Convenience log method used during debugging
+     * Capture the state of the view that affects how its text is measured, for measuring text
+     * on another thread with {@link PrecomputedFontText#create(CharSequence,
+     * PrecomputedFontText.Params)}. The view's current measured width is used, so this is best
+     * called once the view has been laid out, e.g. when a list row is recycled.
      *
-     * @param message
+     * @return The params
      */
-    private static void LOG(String message) {
-        if (DEBUG || BuildConfig.DEBUG) {
-            Log.d(LOG_TAG, message);
+    public PrecomputedFontText.Params getPrecomputedTextParams() {
+        return getPrecomputedTextParams(getMeasuredWidth());
+    }
+
+    /**
+     * Capture the state of the view that affects how its text is measured, for a view that will
+     * be the given width.
+     *
+     * @param width The width of the view, including padding
+     * @return The params
+     */
+    public PrecomputedFontText.Params getPrecomputedTextParams(int width) {
+        return new PrecomputedFontText.Params(
+                new TextPaint(getDefaultTextPaint()),
+                width - (getPaddingLeft() + getPaddingRight()),
+                justify,
+                mWordEllipsize,
+                getEllipsize() == TextUtils.TruncateAt.END,
+                getMaxLines(),
+                getVisibleLineCount(),
+                linkType,
+                linkTextColor,
+                linkUnderline,
+                getTextMetricsParamsCompat());
+    }
+
+    /**
+     * Set text that has been measured ahead of time, so that no measuring is needed on the main
+     * thread. If the view no longer matches the params the text was measured with, whatever no
+     * longer matches is measured again when needed.
+     *
+     * @param text The measured text
+     */
+    public void setPrecomputedText(PrecomputedFontText text) {
+        if (mLinkIndex != null) {
+            mLinkIndex.clear();
+        }
+        if (text.hasLinks()) {
+            setLinkMovementMethod();
         }
+
+        PrecomputedTextCompat precomputedText = text.getPrecomputedText();
+        if (precomputedText.getParams().equals(getTextMetricsParamsCompat())) {
+            super.setPrecomputedText(precomputedText);
+        } else {
+            setText(text.getText());
+        }
+
+        // Spans are copied by reference, so the index can be built from the view's text if a
+        // link is touched
+        mLinkIndexStale = true;
+        mPrecomputedLayout = text.getWordLayout();
+        mPrecomputedText = mPrecomputedLayout != null ? getText() : null;
     }
 
-    private boolean containsLinkType(int type) {
-        return (linkType & type) == type;
+    /**
+     * Find the link under a touch, allowing for a touch that lands just outside it.
+     *
+     * @param buffer The text of the view
+     * @param layout The layout of the text
+     * @param x      Horizontal position of the touch within the layout
+     * @param y      Vertical position of the touch within the layout
+     * @return The link, or null if there is none within the touch slop
+     */
+    ClickableSpan findLink(Spanned buffer, Layout layout, int x, int y) {
+        if (mLinkIndex == null) {
+            mLinkIndex = new LinkIndex();
+        }
+        if (mLinkIndexStale) {
+            mLinkIndex.rebuild(buffer, ClickableSpan.class);
+            mLinkIndexStale = false;
+        }
+
+        int line = layout.getLineForVertical(y);
+        int offset = layout.getOffsetForHorizontal(line, x);
+        ClickableSpan link = mLinkIndex.find(offset, offset, offset);
+        if (link != null) {
+            return link;
+        }
+
+        if (mTouchSlop < 0) {
+            mTouchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        }
+        link = findLinkOnLine(layout, line, x, offset);
+        int first = layout.getLineForVertical(y - mTouchSlop);
+        int last = layout.getLineForVertical(y + mTouchSlop);
+        for (int l = first; l <= last && link == null; l++) {
+            if (l != line) {
+                link = findLinkOnLine(layout, l, x, layout.getOffsetForHorizontal(l, x));
+            }
+        }
+        return link;
+    }
+
+    private ClickableSpan findLinkOnLine(Layout layout, int line, int x, int offset) {
+        int low = layout.getOffsetForHorizontal(line, x - mTouchSlop);
+        int high = layout.getOffsetForHorizontal(line, x + mTouchSlop);
+        return mLinkIndex.find(offset, low, high);
     }
 
-    private void gatherLinks(CharSequence s, Pattern pattern, int type) {
-        Matcher m = pattern.matcher(s);
+    private void setLinkMovementMethod() {
+        MovementMethod m = getMovementMethod();
+        if ((!(m instanceof LinkMovementMethod)) && getLinksClickable()) {
+            setMovementMethod(LocalLinkMovementMethod.getInstance());
+        }
+    }
 
-        while (m.find()) {
-            int start = m.start();
-            int end = m.end();
+    /**
+     * Bring the links up to date after an edit, rescanning only the words around the changed
+     * range and replacing the link spans there in place.
+     *
+     * @param text  The edited text
+     * @param start Start of the changed range
+     * @param end   End of the changed range, after the edit
+     */
+    private void relink(Spannable text, int start, int end) {
+        int length = text.length();
+        int from = Math.min(start, length);
+        int to = Math.min(end, length);
+
+        // Links that the edit touched may have grown, shrunk or split
+        LinkSpan[] touched = text.getSpans(from, to, LinkSpan.class);
+        for (LinkSpan span : touched) {
+            from = Math.min(from, text.getSpanStart(span));
+            to = Math.max(to, text.getSpanEnd(span));
+        }
+        // Links cannot contain white space, so the words either side bound the rescan
+        while (from > 0 && !Character.isWhitespace(text.charAt(from - 1))) {
+            from--;
+        }
+        while (to < length && !Character.isWhitespace(text.charAt(to))) {
+            to++;
+        }
 
-            Hyperlink link = new Hyperlink();
+        for (LinkSpan span : text.getSpans(from, to, LinkSpan.class)) {
+            if (text.getSpanStart(span) >= from && text.getSpanEnd(span) <= to) {
+                text.removeSpan(span);
+            }
+        }
 
-            link.type = type;
-            link.textSpan = s.subSequence(start, end);
-            link.color = linkTextColor;
-            link.underline = linkUnderline;
-            link.span =
-                    new LinkSpan(link.textSpan.toString(), link.type, link.color, link.underline);
-            link.start = start;
-            link.end = end;
+        long scanStart = TextViewMetrics.begin(TextViewMetrics.EVENT_LINK_SCAN);
+        int[] tokens;
+        try {
+            tokens = PrecomputedLinks.sLinkTokenizer.tokenize(text, from, to, linkType);
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_LINK_SCAN, scanStart);
+        }
+        for (int i = 0; i < tokens.length; i += LinkTokenizer.TOKEN_SIZE) {
+            int linkStart = tokens[i + LinkTokenizer.TOKEN_START];
+            int linkEnd = tokens[i + LinkTokenizer.TOKEN_END];
+            LinkSpan span =
+                    new LinkSpan(
+                            text.subSequence(linkStart, linkEnd).toString(),
+                            tokens[i + LinkTokenizer.TOKEN_TYPE],
+                            linkTextColor,
+                            linkUnderline);
+            text.setSpan(span, linkStart, linkEnd, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        }
+        if (tokens.length != 0) {
+            setLinkMovementMethod();
+        }
+    }
 
-            links.add(link);
+    /**
+     * Convenience log method used during debugging
+     *
+     * @param message
+     */
+    private static void LOG(String message) {
+        if (DEBUG || BuildConfig.DEBUG) {
+            Log.d(LOG_TAG, message);
         }
     }
 
     @Override
     public boolean onPreDraw() {
+        syncPaintState();
         getDefaultTextPaint();
         return super.onPreDraw();
     }
 
+    /**
+     * Pick up a text size or typeface set on the paint without going through the view, as
+     * autosizing does, before anything keyed on the paint generation is used.
+     */
+    private void syncPaintState() {
+        if (mPaintState.sync(this)) {
+            onTextMetricsChanged();
+        }
+    }
+
+    /**
+     * As {@link #syncPaintState()}, for use from draw. The new generation is picked up straight
+     * away, but {@link #onTextMetricsChanged()} is posted, as it may set text and so request a
+     * layout.
+     */
+    private void syncPaintStateForDraw() {
+        if (mPaintState.sync(this)) {
+            removeCallbacks(mTextMetricsChanged);
+            post(mTextMetricsChanged);
+        }
+    }
+
+    /**
+     * Get the paint with the view's own text attributes. They are only re-applied if they have
+     * changed, or a span has changed the paint, since they were last applied. See
+     * {@link PaintState}.
+     *
+     * @return the view's paint
+     */
     private TextPaint getDefaultTextPaint() {
         TextPaint paint = getPaint();
-        paint.setColor(getCurrentTextColor());
-        paint.setTypeface(getTypeface());
-        paint.setTextSize(getTextSize());
-        paint.setUnderlineText(false);
-        paint.drawableState = getDrawableState();
+        mPaintState.apply(this, paint);
         return paint;
     }
 
     @Override
-    protected void onDraw(Canvas canvas) {
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        long start = TextViewMetrics.begin(TextViewMetrics.EVENT_MEASURE);
+        try {
+            if (autoMax) {
+                // An exact height is known before measuring, so the lines can be fitted to it in
+                // this pass. Otherwise check the current height, in case the line height changed.
+                updateAutoMaxLines(
+                        MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY
+                                ? MeasureSpec.getSize(heightMeasureSpec)
+                                : getHeight());
+            }
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_MEASURE, start);
+        }
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
         if (autoMax) {
-            setVisibleMaxLines();
+            updateAutoMaxLines(h);
         }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
         if (mWordEllipsize && !justify) {
             onDrawRagged(canvas);
         } else if (justify) {
-            onDrawJustified(canvas);
+            if (isDrawingNativeJustified()) {
+                long start = TextViewMetrics.begin(TextViewMetrics.EVENT_DRAW_JUSTIFIED);
+                try {
+                    super.onDraw(canvas);
+                } finally {
+                    TextViewMetrics.end(this, TextViewMetrics.EVENT_DRAW_JUSTIFIED, start);
+                }
+            } else {
+                onDrawJustified(canvas);
+            }
         } else {
             super.onDraw(canvas);
         }
     }
 
+    /**
+     * Whether the platform's own layout can draw the justified text. It handles spans and links,
+     * but breaks lines with its own strategy and hyphenation, so its lines can differ from the
+     * library's. Its ellipsis cuts through words, so the library still draws any text that has
+     * been shortened with an ellipsis.
+     *
+     * @return true if the text should be drawn by TextView
+     */
+    private boolean isDrawingNativeJustified() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || !mNativeJustify) {
+            return false;
+        }
+        Layout layout = getLayout();
+        if (layout == null) {
+            return false;
+        }
+        if (getEllipsize() != TextUtils.TruncateAt.END) {
+            return true;
+        }
+        int lineCount = layout.getLineCount();
+        return lineCount <= getVisibleLineCount()
+                && (lineCount == 0 || layout.getEllipsisCount(lineCount - 1) == 0);
+    }
+
+    /** Ask TextView to justify its own layout when the platform can draw the text. */
+    private void updateJustificationMode() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            setJustificationMode(
+                    justify && mNativeJustify
+                            ? Layout.JUSTIFICATION_MODE_INTER_WORD
+                            : Layout.JUSTIFICATION_MODE_NONE);
+        }
+    }
+
     @Override
     public void setAllCaps(boolean allCaps) {
         mAllCaps = allCaps;
@@ -377,6 +787,8 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
 
     public void setAutoMax(boolean autoMax) {
         this.autoMax = autoMax;
+        mAutoMaxHeight = -1;
+        mAutoMaxLines = -1;
         if (!autoMax) {
             setMaxLines(attrMaxLines);
         }
@@ -415,74 +827,54 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
 
     public void setJustify(boolean justify) {
         this.justify = justify;
+        updateJustificationMode();
         requestLayout();
     }
 
     /**
-     * Paint the justified text onto the canvas
+     * Whether justified text is drawn by the platform on API 26 and higher.
      *
-     * @param canvas
+     * @return true if the platform's justification is used where it is available
      */
-    protected void onDrawJustified(Canvas canvas) {
-        // Manipulations to mTextPaint found in super.onDraw()...
-        getPaint().setColor(getCurrentTextColor());
-        getPaint().drawableState = getDrawableState();
-
-        // The actual String that contains all the words we will draw on screen
-        CharSequence markedText = TextUtils.stringOrSpannedString(getText());
-
-        float lineSpacing = getLineHeight();
-        float drawableWidth = getDrawableWidth();
+    public boolean isNativeJustifyEnabled() {
+        return mNativeJustify;
+    }
 
-        // Variables we need to traverse our fullText and build our lines
-        int lineNum = 1;
-        int lineStartIndex = 0;
-        int lastWordEnd = 0;
-        int currWordEnd = 0;
-
-        String fullText = markedText.toString();
-
-        if (markedText.toString().indexOf(' ', 0) == -1)
-            flushWord(canvas, getPaddingTop() + lineSpacing, markedText);
-        else {
-            while (currWordEnd >= 0) {
-                lastWordEnd = currWordEnd + 1;
-                currWordEnd = markedText.toString().indexOf(' ', lastWordEnd);
-                int nl = fullText.indexOf('\n', lastWordEnd);
-                if (nl != -1 && nl < currWordEnd) {
-                    currWordEnd = nl;
-                }
-                if (currWordEnd != -1) {
-                    getPaint().getTextBounds(fullText, lineStartIndex, currWordEnd, mLineBounds);
-                    CharSequence lineToPaint = markedText.subSequence(lineStartIndex, lastWordEnd);
-                    if (mLineBounds.width() >= drawableWidth
-                            || lineToPaint.toString().contains("\n")) {
-                        if (!lineToPaint.toString().contains("\n")) {
-                            flushLine(canvas, lineNum, lineToPaint);
-                        } else {
-                            rawFlushLine(canvas, lineNum, lineToPaint);
-                        }
-                        lineStartIndex = lastWordEnd;
-                        lineNum++;
-                    }
+    /**
+     * <p>Choose whether justified text is drawn by the platform, through
+     * {@link Layout#JUSTIFICATION_MODE_INTER_WORD}, on API 26 and higher. This is on by default:
+     * the platform breaks and draws the text natively, with hardware acceleration, and handles
+     * links and {@link TypefaceSpan}s like any other span.</p>
+     *
+     * <p>The platform breaks lines with its own strategy and hyphenation, so the lines can differ
+     * from those the library draws on older devices. Turn this off for the same lines on every
+     * version.</p>
+     *
+     * <p>When the text is ellipsized the library's own engine still draws it, so that the
+     * ellipsis falls on a word boundary. It is also used on older devices, and for every draw
+     * when this is turned off.</p>
+     *
+     * @param enabled true to use the platform's justification where it is available
+     */
+    public void setNativeJustifyEnabled(boolean enabled) {
+        mNativeJustify = enabled;
+        updateJustificationMode();
+        invalidate();
+    }
 
-                } else {
-                    getPaint()
-                            .getTextBounds(
-                                    fullText, lineStartIndex, fullText.length(), mLineBounds);
-
-                    if (mLineBounds.width() >= drawableWidth) {
-                        flushLine(canvas, lineNum, fullText.substring(lineStartIndex, lastWordEnd));
-                        rawFlushLine(canvas, ++lineNum, fullText.substring(lastWordEnd));
-                    } else {
-                        if (lineNum == 1) {
-                            rawFlushLine(canvas, lineNum, fullText);
-                        } else {
-                            rawFlushLine(canvas, lineNum, fullText.substring(lineStartIndex));
-                        }
-                    }
-                }
-            }
+    /**
+     * Paint the justified text onto the canvas with the library's own engine. On API 26 and
+     * higher {@link #onDraw(Canvas)} only uses this when the platform cannot draw the text, see
+     * {@link #setNativeJustifyEnabled(boolean)}.
+     *
+     * @param canvas
+     */
+    protected void onDrawJustified(Canvas canvas) {
+        long start = TextViewMetrics.begin(TextViewMetrics.EVENT_DRAW_JUSTIFIED);
+        try {
+            drawWordLayout(canvas, getWordLayout(true));
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_DRAW_JUSTIFIED, start);
         }
     }
 
@@ -493,402 +885,214 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
      * @param canvas
      */
     protected void onDrawRagged(Canvas canvas) {
-        // Manipulations to mTextPaint found in super.onDraw()...
-        getPaint().setColor(getCurrentTextColor());
-        getPaint().drawableState = getDrawableState();
-
-        // The actual String that contains all the words we will draw on screen
-        CharSequence markedText = TextUtils.stringOrSpannedString(getText());
-
-        float lineSpacing = getLineHeight();
-        float drawableWidth = getDrawableWidth();
-
-        // Variables we need to traverse our fullText and build our lines
-        int lineNum = 1;
-        int lineStartIndex = 0;
-        int lastWordEnd = 0;
-        int currWordEnd = 0;
-
-        String fullText = markedText.toString();
-
-        if (markedText.toString().indexOf(' ', 0) == -1)
-            flushWordRagged(canvas, getPaddingTop() + lineSpacing, markedText);
-        else {
-            while (currWordEnd >= 0) {
-                lastWordEnd = currWordEnd + 1;
-                currWordEnd = markedText.toString().indexOf(' ', lastWordEnd);
-                int nl = fullText.indexOf('\n', lastWordEnd);
-                if (nl != -1 && nl < currWordEnd) {
-                    currWordEnd = nl;
-                }
-                if (currWordEnd != -1) {
-                    getPaint().getTextBounds(fullText, lineStartIndex, currWordEnd, mLineBounds);
-                    CharSequence lineToPaint = markedText.subSequence(lineStartIndex, lastWordEnd);
-                    if (mLineBounds.width() >= drawableWidth
-                            || lineToPaint.toString().contains("\n")) {
-                        if (!lineToPaint.toString().contains("\n")) {
-                            flushLineRagged(canvas, lineNum, lineToPaint);
-                        } else {
-                            rawFlushLine(canvas, lineNum, lineToPaint);
-                        }
-                        lineStartIndex = lastWordEnd;
-                        lineNum++;
-                    }
-
-                } else {
-                    getPaint()
-                            .getTextBounds(
-                                    fullText, lineStartIndex, fullText.length(), mLineBounds);
-
-                    if (mLineBounds.width() >= drawableWidth) {
-                        flushLineRagged(
-                                canvas, lineNum, fullText.substring(lineStartIndex, lastWordEnd));
-                        rawFlushLine(canvas, ++lineNum, fullText.substring(lastWordEnd));
-                    } else {
-                        if (lineNum == 1) {
-                            rawFlushLine(canvas, lineNum, fullText);
-                        } else {
-                            rawFlushLine(canvas, lineNum, fullText.substring(lineStartIndex));
-                        }
-                    }
-                }
-            }
+        long start = TextViewMetrics.begin(TextViewMetrics.EVENT_DRAW_RAGGED);
+        try {
+            drawWordLayout(canvas, getWordLayout(false));
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_DRAW_RAGGED, start);
         }
     }
 
     /**
-     * Based on the size of the TextView calculate how many lines can be displayed and set this as
-     * the maxLines for the view.
+     * Get the line layout for the justified or ragged draw modes. The layout is only rebuilt when
+     * the text, drawable width, paint or line limits have changed since it was last computed.
+     *
+     * @param justified whether words should be spread to fill each line
+     * @return WordLayout for the current state of the view
      */
-    public void setVisibleMaxLines() {
-        LOG("setVisibleMaxLines()");
-        new Runnable() {
-            @Override
-            public void run() {
-                if (getText() != "") {
-                    // calculate font height
-                    float height = getLineHeight();
-                    // calculate the no of lines that will fit in the text box based on this height
-                    int heightOfTextView = getHeight() - (getPaddingBottom() + getPaddingTop());
-                    int noLinesInTextView = (int) (heightOfTextView / height);
-                    // set max lines to this
-                    setMaxLines(noLinesInTextView);
-                    LOG(
-                            "setVisibleMaxLines() "
-                                    + convertPixelsToDp(height)
-                                    + ", "
-                                    + convertPixelsToDp(heightOfTextView)
-                                    + ", "
-                                    + noLinesInTextView);
-                }
+    private WordLayout getWordLayout(boolean justified) {
+        syncPaintStateForDraw();
+        CharSequence text = getText();
+        TextPaint paint = getDefaultTextPaint();
+        float drawableWidth = getDrawableWidth();
+        int maxLines = getMaxLines();
+        int visibleLines = getVisibleLineCount();
+        boolean ellipsize = getEllipsize() == TextUtils.TruncateAt.END;
+
+        if (mPrecomputedLayout != null) {
+            if (text == mPrecomputedText
+                    && mPrecomputedLayout.matchesParams(
+                            justified, paint, drawableWidth, maxLines, visibleLines, ellipsize)) {
+                return mPrecomputedLayout;
             }
-        }.run();
-    }
-
-    private void setFirstLineTextHeight(String firstLine) {
-        getDefaultTextPaint().getTextBounds(firstLine, 0, firstLine.length(), mLineBounds);
-        mFirstLineTextHeight = mLineBounds.height();
-    }
-
-    private void setFirstLineTextHeight(CharSequence firstLine) {
-        setFirstLineTextHeight(firstLine.toString());
-        mFirstLineTextHeight = this.getLineHeight();
-    }
-
-    private void rawFlushLine(Canvas canvas, int lineNum, CharSequence line) {
-        if (lineNum == 1) setFirstLineTextHeight(line);
-
-        SpannableStringBuilder builder = new SpannableStringBuilder(line);
-
-        if (getEllipsize() == TextUtils.TruncateAt.END && lineNum == getMaxLines()) {
-            builder.append(ELLIPSIS);
-            builder = tryEllipsize(builder);
+            // The view has changed since the text was measured
+            mPrecomputedLayout = null;
+            mPrecomputedText = null;
         }
-
-        int next;
-
-        float yLine = getPaddingTop() + mFirstLineTextHeight + (lineNum - 1) * getLineHeight();
-
-        SpannableStringBuilder spanLine = builder;
-        // draw each span one at a time
-        float xStart = getPaddingLeft();
-        float xEnd;
-        for (int i = 0; i < spanLine.length(); i = next) {
-            Paint mTextPaint = getDefaultTextPaint();
-            // find the next span transition
-            next = spanLine.nextSpanTransition(i, spanLine.length(), null);
-            // measure the length of the span
-            xEnd = xStart + mTextPaint.measureText(spanLine, i, next);
-
-            CharacterStyle[] fgSpans = spanLine.getSpans(i, next, CharacterStyle.class);
-
-            Typeface oldTypeface = null;
-            if (fgSpans.length > 0) {
-                for (CharacterStyle span : fgSpans) {
-                    if (span instanceof TypefaceSpan
-                            || span instanceof android.text.style.TypefaceSpan) {
-                        oldTypeface = mTextPaint.getTypeface();
-                    }
-                    span.updateDrawState((TextPaint) mTextPaint);
-                    canvas.drawText(spanLine, i, next, xStart, yLine, mTextPaint);
-                    mTextPaint = getDefaultTextPaint();
-                    if ((span instanceof LinkSpan
-                                    || span instanceof TypefaceSpan
-                                    || span instanceof android.text.style.TypefaceSpan)
-                            && oldTypeface != null) {
-                        xEnd = xStart + mTextPaint.measureText(spanLine, i, next);
-                        mTextPaint.setTypeface(oldTypeface);
-                    }
-                }
-
-            } else {
-                canvas.drawText(spanLine, i, next, xStart, yLine, mTextPaint);
+        if (mWordLayout == null) {
+            mWordLayout = new WordLayout();
+        }
+        int paintGeneration = mPaintState.getGeneration();
+        if (!mWordLayout.matches(
+                text,
+                justified,
+                paintGeneration,
+                drawableWidth,
+                maxLines,
+                visibleLines,
+                ellipsize)) {
+            LOG("getWordLayout() rebuilding layout");
+            long start = TextViewMetrics.begin(TextViewMetrics.EVENT_LAYOUT_REBUILD);
+            try {
+                mWordLayout.reset(
+                        text,
+                        justified,
+                        paint,
+                        paintGeneration,
+                        drawableWidth,
+                        maxLines,
+                        visibleLines,
+                        ellipsize);
+                WordLayoutBuilder.breakLines(
+                        mWordLayout, TextUtils.stringOrSpannedString(text), paint, ELLIPSIS, this);
+            } finally {
+                TextViewMetrics.end(this, TextViewMetrics.EVENT_LAYOUT_REBUILD, start);
             }
-
-            xStart = xEnd;
         }
+        return mWordLayout;
     }
 
-    private void flushLine(Canvas canvas, int lineNum, CharSequence line) {
-        if (lineNum == 1) setFirstLineTextHeight(line);
-
-        if (lineNum > getMaxLines()) {
-            return;
-        }
-
-        SpannableStringBuilder builder = new SpannableStringBuilder(line);
-        if (builder.charAt(builder.length() - 1) == ' ') {
-            builder = new SpannableStringBuilder(builder.subSequence(0, builder.length() - 1));
-        }
-
-        float height = getLineHeight();
-        // calculate the no of lines that will fit in the text box based on this height
-        int heightOfTextView = getHeight() - (getPaddingBottom() + getPaddingTop());
-        int noLinesInTextView = (int) (heightOfTextView / height);
-
-        if (getEllipsize() == TextUtils.TruncateAt.END
-                && (lineNum == getMaxLines() || lineNum == noLinesInTextView)) {
-            builder.append(ELLIPSIS);
-            builder = tryEllipsize(builder);
-        }
-
-        CharSequence[] words = splitCharSequence(builder, ' ');
-        Paint mTextPaint = getDefaultTextPaint();
-
-        float yLine = getPaddingTop() + mFirstLineTextHeight + (lineNum - 1) * getLineHeight();
-
-        if (!autoMax && yLine + getLineHeight() > getHeight() - getPaddingBottom()) {
-            canvas.clipRect(
-                    0, yLine - getLineHeight(), getWidth(), getHeight() - getPaddingBottom());
+    /** Discard the cached line layout so that it is rebuilt on the next draw. */
+    void invalidateWordLayout() {
+        if (mWordLayout != null) {
+            mWordLayout.invalidate();
         }
+        mPrecomputedLayout = null;
+        mPrecomputedText = null;
+    }
 
-        float xStart = getPaddingLeft();
-        float wordWidth = mTextPaint.measureText(builder, 0, builder.length());
-        float spacingWidth = (getDrawableWidth() - wordWidth) / (words.length - 1);
-
-        int next;
-
-        for (CharSequence word : words) {
-            LOG("xStart: " + xStart + ", yStart: " + yLine);
-            SpannableStringBuilder spanLine = new SpannableStringBuilder(word);
-            // draw each span one at a time
-            float xEnd = xStart;
-            for (int i = 0; i < spanLine.length(); i = next) {
-                LOG("Writing: \"" + spanLine.toString() + "\"");
-                // find the next span transition
-                next = spanLine.nextSpanTransition(i, spanLine.length(), null);
-                // measure the length of the span
-                xEnd = xStart + mTextPaint.measureText(spanLine, i, next) + (spacingWidth);
+    /**
+     * Replay a computed layout onto the canvas. This is called for every frame, so it must not
+     * allocate: everything it needs is held in the layout's arrays.
+     *
+     * @param canvas
+     * @param layout
+     */
+    private void drawWordLayout(Canvas canvas, WordLayout layout) {
+        float lineHeight = getLineHeight();
+        float left = getPaddingLeft();
+        float bottom = getHeight() - getPaddingBottom();
+
+        int saveCount = canvas.save();
+        for (int line = 0; line < layout.lineCount; line++) {
+            float yLine = getPaddingTop() + layout.lineNumbers[line] * lineHeight;
+            int type = layout.lineTypes[line];
+
+            if ((type == WordLayout.LINE_JUSTIFIED || type == WordLayout.LINE_RAGGED)
+                    && !autoMax
+                    && yLine + lineHeight > bottom) {
+                canvas.clipRect(0, yLine - lineHeight, getWidth(), bottom);
+            }
 
-                CharacterStyle[] fgSpans = spanLine.getSpans(i, next, CharacterStyle.class);
-                if (fgSpans.length > 0) {
-                    for (CharacterStyle span : fgSpans) {
-                        span.updateDrawState((TextPaint) mTextPaint);
-                        canvas.drawText(spanLine, i, next, xStart, yLine, mTextPaint);
-                        getDefaultTextPaint();
+            for (int run = layout.lineRunStarts[line]; run < layout.lineRunEnds[line]; run++) {
+                // Only resets the paint if the previous run had styles applied
+                TextPaint paint = getDefaultTextPaint();
+                int spanStart = layout.runSpanStarts[run];
+                int spanEnd = layout.runSpanEnds[run];
+                if (spanStart != spanEnd) {
+                    mPaintState.markDirty();
+                    for (int span = spanStart; span < spanEnd; span++) {
+                        layout.spans[span].updateDrawState(paint);
                     }
-                    xStart = xEnd;
-                } else {
-                    canvas.drawText(spanLine, i, next, xStart, yLine, mTextPaint);
                 }
+                canvas.drawText(
+                        layout.chars,
+                        layout.runStarts[run],
+                        layout.runEnds[run] - layout.runStarts[run],
+                        left + layout.runX[run],
+                        yLine,
+                        paint);
             }
-            xStart = xEnd;
         }
+        canvas.restoreToCount(saveCount);
+        getDefaultTextPaint();
     }
 
-    private CharSequence[] splitCharSequence(CharSequence builder, char delimiter) {
-        ArrayList<CharSequence> words = new ArrayList<>();
-        int lastsplit = 0;
-        for (int c = 0; c < builder.length(); c++) {
-            if (builder.charAt(c) == delimiter) {
-                CharSequence subSeq = builder.subSequence(lastsplit, c + 1);
-                words.add(subSeq);
-                lastsplit = c + 1;
-            }
-        }
-        if (lastsplit < builder.length()) {
-            CharSequence seq = builder.subSequence(lastsplit, builder.length());
-            words.add(seq);
-        }
-        CharSequence[] arr = new CharSequence[words.size()];
-        return words.toArray(arr);
+    /**
+     * Based on the size of the TextView calculate how many lines can be displayed and set this as
+     * the maxLines for the view.
+     */
+    public void setVisibleMaxLines() {
+        LOG("setVisibleMaxLines()");
+        mAutoMaxHeight = -1;
+        updateAutoMaxLines(getHeight());
     }
 
-    protected SpannableStringBuilder tryEllipsize(SpannableStringBuilder builder) {
-        LOG("tryEllipsize() " + builder.toString());
-        while (builder.length() > 0 && (builder.charAt(builder.length() - 1) == '\n')) {
-            builder = new SpannableStringBuilder(builder.subSequence(0, builder.length() - 1));
-            LOG("tryEllipsize() trimming to: " + builder.toString());
-        }
-        LOG("tryEllipsize() " + builder.toString());
-        float unmodifiedWidth = getDefaultTextPaint().measureText(builder, 0, builder.length());
-        LOG(
-                "tryEllipsize() drawableWidth: "
-                        + getDrawableWidth()
-                        + ", unmodifiedWidth: "
-                        + unmodifiedWidth);
-        if (getDrawableWidth() > unmodifiedWidth) {
-            return builder;
-        } else {
-            int lastSpace = TextUtils.lastIndexOf(builder, ' ');
-            builder.replace(lastSpace, builder.length(), ELLIPSIS);
-            return tryEllipsize(builder);
-        }
-    }
     /**
-     * Flush a line to the canvas. Word spacing is uniform so that the line is NOT justified. If
-     * needed an ellipsis is added. This is done on word boundaries rather than in the middle of
-     * words.
+     * Fit maxLines to a height when {@link #setAutoMax(boolean) autoMax} is set. This is called
+     * from {@link #onMeasure(int, int)} and {@link #onSizeChanged(int, int, int, int)}, and only
+     * does any work when the height, padding or line height has changed since the last call.
+     * maxLines is only set when the number of lines changes, as setting it requests a layout.
      *
-     * @param canvas
-     * @param lineNum
-     * @param line
+     * @param height the height of the view, including padding
      */
-    private void flushLineRagged(Canvas canvas, int lineNum, CharSequence line) {
-        if (lineNum == 1) setFirstLineTextHeight(line);
-
-        if (lineNum > getMaxLines()) {
+    private void updateAutoMaxLines(int height) {
+        if (height <= 0) {
+            // Not laid out yet
             return;
         }
-
-        SpannableStringBuilder builder = new SpannableStringBuilder(line);
-        if (builder.charAt(builder.length() - 1) == ' ') {
-            builder = new SpannableStringBuilder(builder.subSequence(0, builder.length() - 1));
-        }
-
-        float height = getLineHeight();
-        // calculate the no of lines that will fit in the text box based on this height
-        int heightOfTextView = getHeight() - (getPaddingBottom() + getPaddingTop());
-        int noLinesInTextView = (int) (heightOfTextView / height);
-
-        if (getEllipsize() == TextUtils.TruncateAt.END
-                && (lineNum == getMaxLines() || lineNum == noLinesInTextView)) {
-            builder.append(ELLIPSIS);
-            builder = tryEllipsize(builder);
-        }
-
-        CharSequence[] words = splitCharSequence(builder, ' ');
-        Paint mTextPaint = getPaint();
-
-        float yLine = getPaddingTop() + mFirstLineTextHeight + (lineNum - 1) * getLineHeight();
-
-        if (!autoMax && yLine + getLineHeight() > getHeight() - getPaddingBottom()) {
-            canvas.clipRect(
-                    0, yLine - getLineHeight(), getWidth(), getHeight() - getPaddingBottom());
+        int heightOfTextView = height - (getPaddingBottom() + getPaddingTop());
+        float lineHeight = getLineHeight();
+        if (heightOfTextView == mAutoMaxHeight && lineHeight == mAutoMaxLineHeight) {
+            return;
         }
+        mAutoMaxHeight = heightOfTextView;
+        mAutoMaxLineHeight = lineHeight;
 
-        float xStart = getPaddingLeft();
-        mTextPaint.measureText(builder, 0, builder.length());
-        float spacingWidth = 0;
-
-        int next;
-
-        for (CharSequence word : words) {
-            SpannableStringBuilder spanLine = new SpannableStringBuilder(word);
-            // draw each span one at a time
-            float xEnd = xStart;
-            for (int i = 0; i < spanLine.length(); i = next) {
-                // find the next span transition
-                next = spanLine.nextSpanTransition(i, spanLine.length(), null);
-                // measure the length of the span
-                xEnd = xStart + mTextPaint.measureText(spanLine, i, next) + (spacingWidth);
-
-                CharacterStyle[] fgSpans = spanLine.getSpans(i, next, CharacterStyle.class);
-                if (fgSpans.length > 0) {
-                    for (CharacterStyle span : fgSpans) {
-                        span.updateDrawState((TextPaint) mTextPaint);
-                        canvas.drawText(spanLine, i, next, xStart, yLine, mTextPaint);
-                        getDefaultTextPaint();
-                    }
-                    xStart = xEnd;
-                } else {
-                    canvas.drawText(spanLine, i, next, xStart, yLine, mTextPaint);
-                }
-            }
-            xStart = xEnd;
+        int noLinesInTextView = Math.max(0, (int) (heightOfTextView / lineHeight));
+        LOG(
+                "setVisibleMaxLines() "
+                        + convertPixelsToDp(lineHeight)
+                        + ", "
+                        + convertPixelsToDp(heightOfTextView)
+                        + ", "
+                        + noLinesInTextView);
+        if (noLinesInTextView != mAutoMaxLines) {
+            mAutoMaxLines = noLinesInTextView;
+            setMaxLines(noLinesInTextView);
         }
     }
 
     /**
-     * Flush a word to the canvas. Here the space between words is calculated so that words are
-     * evenly spaced and the whole line becomes justified.
+     * Calculate how many whole lines fit in the height of the view.
      *
-     * @param canvas
-     * @param yLine
-     * @param word
+     * @return number of lines
      */
-    private void flushWord(Canvas canvas, float yLine, String word) {
-        float xStart = getPaddingLeft();
-        float wordWidth = getPaint().measureText(word);
-        float spacingWidth = (getDrawableWidth() - wordWidth) / (word.length() - 1);
-
-        for (int i = 0; i < word.length(); i++) {
-            canvas.drawText(word, i, i + 1, xStart, yLine, getPaint());
-            xStart += getPaint().measureText(word, i, i + 1) + spacingWidth;
-        }
-    }
-
-    private float getDrawableWidth() {
-        return getMeasuredWidth() - (getPaddingLeft() + getPaddingRight());
+    private int getVisibleLineCount() {
+        float height = getLineHeight();
+        int heightOfTextView = getHeight() - (getPaddingBottom() + getPaddingTop());
+        return (int) (heightOfTextView / height);
     }
 
     /**
-     * Flush a word to the canvas. Here the space between words is calculated so that words are
-     * evenly spaced and the whole line becomes justified.
+     * Shorten a line that ends with an ellipsis so that it fits the drawable width, cutting it
+     * at a word boundary. See {@link util.android.textviews.core.WordEllipsizer}.
      *
-     * @param canvas
-     * @param yLine
-     * @param word
+     * @param builder the line, which is modified
+     * @return the builder
      */
-    private void flushWord(Canvas canvas, float yLine, CharSequence word) {
-        float xStart = getPaddingLeft();
-        float wordWidth = getPaint().measureText(word, 0, word.length());
-        float spacingWidth = (getDrawableWidth() - wordWidth) / (word.length() - 1);
-
-        for (int i = 0; i < word.length(); i++) {
-            canvas.drawText(word, i, i + 1, xStart, yLine, getPaint());
-            xStart += getPaint().measureText(word, i, i + 1) + spacingWidth;
+    protected SpannableStringBuilder tryEllipsize(SpannableStringBuilder builder) {
+        LOG("tryEllipsize() " + builder.toString());
+        int length = builder.length();
+        if (length >= ELLIPSIS.length()
+                && TextUtils.regionMatches(
+                        builder, length - ELLIPSIS.length(), ELLIPSIS, 0, ELLIPSIS.length())) {
+            builder.delete(length - ELLIPSIS.length(), length);
+        }
+        long start = TextViewMetrics.begin(TextViewMetrics.EVENT_ELLIPSIZE);
+        try {
+            return new PaintMeasurer(getDefaultTextPaint())
+                    .ellipsize(builder, getDrawableWidth(), ELLIPSIS);
+        } finally {
+            TextViewMetrics.end(this, TextViewMetrics.EVENT_ELLIPSIZE, start);
         }
     }
 
-    /**
-     * Flush a word to the canvas. Here the space between words is simply the space needed to
-     * contain a space.
-     *
-     * @param canvas
-     * @param yLine
-     * @param word
-     */
-    private void flushWordRagged(Canvas canvas, float yLine, CharSequence word) {
-        float xStart = getPaddingLeft();
-        float spacingWidth = getPaint().measureText(" ");
-
-        for (int i = 0; i < word.length(); i++) {
-            canvas.drawText(word, i, i + 1, xStart, yLine, getPaint());
-            xStart += getPaint().measureText(word, i, i + 1) + spacingWidth;
-        }
+    private float getDrawableWidth() {
+        return getMeasuredWidth() - (getPaddingLeft() + getPaddingRight());
     }
 
+
     /**
      * Add the ellipsis to a line by trimming trailing spaces, and removing any full-stop from the
      * end of the line.
@@ -918,12 +1122,38 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
 
     @Override
     public void afterTextChanged(Editable s) {
-        // Do nothing
+        if (mRelinkStart >= 0) {
+            int start = mRelinkStart;
+            mRelinkStart = -1;
+            if (isDetectingLinks()) {
+                relink(s, start, mRelinkEnd);
+            }
+        }
     }
 
     @Override
     public void onTextChanged(CharSequence s, int start, int before, int count) {
-        // Do nothing
+        // The cached layout holds copies of the text, so any edit invalidates it
+        invalidateWordLayout();
+        mLinkIndexStale = true;
+
+        // This is called both as a TextWatcher and by TextView, so only note the range here and
+        // relink once in afterTextChanged. Replacing the whole text with setText is left to
+        // setText(CharSequence, boolean).
+        if (!mSettingText) {
+            mRelinkStart = start;
+            mRelinkEnd = start + count;
+        }
+    }
+
+    @Override
+    public void setText(CharSequence text, BufferType type) {
+        mSettingText = true;
+        try {
+            super.setText(text, type);
+        } finally {
+            mSettingText = false;
+        }
     }
 
     public interface OnLinkClickListener {
@@ -953,13 +1183,19 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
                 y += widget.getScrollY();
 
                 Layout layout = widget.getLayout();
-                int line = layout.getLineForVertical(y);
-                int off = layout.getOffsetForHorizontal(line, x);
+                ClickableSpan link;
+                if (widget instanceof FontTextView) {
+                    link = ((FontTextView) widget).findLink(buffer, layout, x, y);
+                } else {
+                    int line = layout.getLineForVertical(y);
+                    int off = layout.getOffsetForHorizontal(line, x);
+                    ClickableSpan[] links = buffer.getSpans(off, off, ClickableSpan.class);
+                    link = links.length != 0 ? links[links.length - 1] : null;
+                }
 
-                ClickableSpan[] link = buffer.getSpans(off, off, ClickableSpan.class);
-                if (link.length != 0) {
+                if (link != null) {
                     if (action == MotionEvent.ACTION_UP) {
-                        link[link.length - 1].onClick(widget);
+                        link.onClick(widget);
                     }
 
                     if (widget instanceof FontTextView) {
@@ -975,17 +1211,7 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
         }
     }
 
-    private class Hyperlink {
-        int type;
-        CharSequence textSpan;
-        LinkSpan span;
-        int start;
-        int end;
-        int color;
-        boolean underline;
-    }
-
-    private class LinkSpan extends ClickableSpan {
+    static class LinkSpan extends ClickableSpan {
 
         private String mLinkText;
         private int mType;
@@ -1001,6 +1227,8 @@ public class FontTextView extends AppCompatTextView implements TextWatcher {
 
         @Override
         public void onClick(View textView) {
+            OnLinkClickListener listener =
+                    textView instanceof FontTextView ? ((FontTextView) textView).listener : null;
             if (listener != null) {
                 listener.onLinkClick(textView, mLinkText, mType);
             }
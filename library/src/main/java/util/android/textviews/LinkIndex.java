@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.text.Spanned;
+import android.text.style.ClickableSpan;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * The links in a {@link FontTextView}'s text, sorted by position so that the link under a touch
+ * can be found by binary search without allocating.
+ *
+ * <p>Links found by FontTextView do not overlap, but other clickable spans in the text may, so
+ * the greatest end so far is kept for each link to know when a search can stop.
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class LinkIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int count;
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private int[] ends = new int[INITIAL_CAPACITY];
+    /** The greatest end of this and every earlier link. */
+    private int[] maxEnds = new int[INITIAL_CAPACITY];
+    private ClickableSpan[] spans = new ClickableSpan[INITIAL_CAPACITY];
+
+    /** Remove all links, ready for them to be added again in text order. */
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            spans[i] = null;
+        }
+        count = 0;
+    }
+
+    /** Add a link after all of those already added. */
+    void add(ClickableSpan span, int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            maxEnds = Arrays.copyOf(maxEnds, count * 2);
+            spans = Arrays.copyOf(spans, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        maxEnds[count] = count == 0 ? end : Math.max(end, maxEnds[count - 1]);
+        spans[count] = span;
+        count++;
+    }
+
+    /**
+     * Rebuild the index from the spans in a text, for when it has been edited or has clickable
+     * spans of its own.
+     *
+     * @param text the text holding the links
+     * @param type the class of the link spans
+     */
+    <T extends ClickableSpan> void rebuild(final Spanned text, Class<T> type) {
+        clear();
+        T[] found = text.getSpans(0, text.length(), type);
+        Arrays.sort(found, new Comparator<T>() {
+            @Override
+            public int compare(T a, T b) {
+                return text.getSpanStart(a) - text.getSpanStart(b);
+            }
+        });
+        for (T span : found) {
+            add(span, text.getSpanStart(span), text.getSpanEnd(span));
+        }
+    }
+
+    /**
+     * Find the link nearest to an offset among those that overlap a range around it.
+     *
+     * @param offset the offset that was touched
+     * @param low start of the range a link may be in
+     * @param high end of the range a link may be in
+     * @return the link, or null if none overlaps the range
+     */
+    ClickableSpan find(int offset, int low, int high) {
+        // The last link that starts at or before the end of the range
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= high) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        ClickableSpan nearest = null;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int i = hi; i >= 0 && maxEnds[i] >= low; i--) {
+            if (ends[i] < low) {
+                continue;
+            }
+            int distance = offset < starts[i] ? starts[i] - offset
+                    : offset > ends[i] ? offset - ends[i] : 0;
+            if (distance < nearestDistance) {
+                nearest = spans[i];
+                nearestDistance = distance;
+                if (distance == 0) {
+                    break;
+                }
+            }
+        }
+        return nearest;
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Paint;
+import android.text.SpannableStringBuilder;
+
+import util.android.textviews.core.TextMeasurer;
+import util.android.textviews.core.WordEllipsizer;
+
+/**
+ * Adapts a {@link Paint} to the {@link TextMeasurer} used by the layout algorithms in the
+ * textcore module. Widths are shared between views through the {@link AdvanceCache}.
+ *
+ * <p>It also applies the textcore {@link WordEllipsizer} to styled lines, which need Android's
+ * text classes to be shortened.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class PaintMeasurer implements TextMeasurer {
+
+    private final Paint paint;
+
+    PaintMeasurer(Paint paint) {
+        this.paint = paint;
+    }
+
+    @Override
+    public float measure(CharSequence text, int start, int end) {
+        return AdvanceCache.measureText(paint, text, start, end);
+    }
+
+    @Override
+    public float measureUncached(CharSequence text, int start, int end) {
+        return start < end ? paint.measureText(text, start, end) : 0;
+    }
+
+    /**
+     * Shorten a line in place so that it fits the width, cutting it at a word boundary where
+     * possible and ending it with the ellipsis. Trailing new lines are removed first. Spans on
+     * the kept text are preserved.
+     *
+     * @param builder the line, which is modified
+     * @param availableWidth the width the line must fit in
+     * @param ellipsis the ellipsis to end the line with
+     * @return the builder, for chaining
+     */
+    SpannableStringBuilder ellipsize(
+            SpannableStringBuilder builder, float availableWidth, CharSequence ellipsis) {
+        int length = builder.length();
+        while (length > 0 && builder.charAt(length - 1) == '\n') {
+            length--;
+        }
+        float ellipsisWidth = measure(ellipsis, 0, ellipsis.length());
+        int cut = WordEllipsizer.findCut(this, builder, 0, length, ellipsisWidth, availableWidth);
+        builder.replace(cut, builder.length(), ellipsis);
+        return builder;
+    }
+}
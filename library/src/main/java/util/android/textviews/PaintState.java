@@ -0,0 +1,121 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Typeface;
+import android.text.TextPaint;
+import android.widget.TextView;
+
+/**
+ * <p>Tracks the default state of a {@link FontTextView}'s paint, so that it is only re-applied
+ * when something has actually changed it.</p>
+ *
+ * <p>Two things can leave the paint out of date. The view's own text attributes can change, e.g.
+ * through {@link TextView#setTextColor(int)} or a new drawable state, which the view reports with
+ * {@link #invalidate()}. That bumps the generation, and the next {@link #apply} captures the new
+ * defaults. Or character styles can be applied to the paint while drawing a run, which the view
+ * reports with {@link #markDirty()}, and the next {@link #apply} restores the defaults.</p>
+ *
+ * <p>The text size and typeface can also be changed without going through the view's setters,
+ * e.g. by AppCompat's autosizing, which sets the size on the paint directly. {@link #sync}
+ * compares them with the captured defaults, and bumps the generation if they differ.</p>
+ *
+ * <p>When nothing has changed, {@link #apply} does nothing. The generation also identifies the
+ * attributes that measurement depends on, so caches of measured text can key on it rather than
+ * reading each attribute back from the paint.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class PaintState {
+
+    private int generation;
+    /** The generation the captured defaults are for, or -1 before they are first captured. */
+    private int appliedGeneration = -1;
+    /** Whether the paint has been changed since the defaults were last applied. */
+    private boolean dirty = true;
+
+    private int color;
+    private Typeface typeface;
+    private float textSize;
+    private int[] drawableState;
+
+    /** Record that the view's text attributes have changed. */
+    void invalidate() {
+        generation++;
+    }
+
+    /** Record that the paint has been changed, e.g. by a character style, and must be reset. */
+    void markDirty() {
+        dirty = true;
+    }
+
+    /** @return a number that changes whenever the view's text attributes change */
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Check whether the size or typeface of a view's paint has been changed without the view
+     * reporting it, and if so bump the generation so that the new values are captured. This is
+     * only meaningful while the paint is clean, so it does nothing while styles are applied.
+     *
+     * @param view the view whose paint to check
+     * @return true if the size or typeface had changed since the defaults were captured
+     */
+    boolean sync(TextView view) {
+        if (dirty || appliedGeneration != generation) {
+            return false;
+        }
+        if (view.getTextSize() != textSize || view.getTypeface() != typeface) {
+            generation++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reset a view's paint to its defaults, if it may have been changed since they were last
+     * applied.
+     *
+     * @param view the view whose defaults to apply
+     * @param paint the paint of the view
+     * @return true if the paint was reset
+     */
+    boolean apply(TextView view, TextPaint paint) {
+        if (appliedGeneration != generation) {
+            // The paint is clean between draws, so the typeface and size read back from it are
+            // the view's own rather than a span's
+            color = view.getCurrentTextColor();
+            typeface = view.getTypeface();
+            textSize = view.getTextSize();
+            drawableState = view.getDrawableState();
+            appliedGeneration = generation;
+            dirty = true;
+        }
+        if (!dirty) {
+            return false;
+        }
+        paint.setColor(color);
+        paint.setTypeface(typeface);
+        paint.setTextSize(textSize);
+        paint.setUnderlineText(false);
+        paint.drawableState = drawableState;
+        dirty = false;
+        return true;
+    }
+}
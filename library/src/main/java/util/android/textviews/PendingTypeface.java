@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package util.android.textviews;
+
+import android.graphics.Typeface;
+import android.widget.TextView;
+
+/**
+ * Applies a font from the assets to a view: straight away if the {@link TypefaceCache} already
+ * has it, and otherwise once it has been loaded in the background.
+ *
+ * <p>A typeface set on the view while the font is loading wins over the font. Views call
+ * {@link #cancel()} from {@code setTypeface(Typeface)} so that the late font is dropped.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class PendingTypeface {
+
+    /** The family still being loaded for the view, or null. */
+    private String mFontFamily;
+
+    /**
+     * Apply a font to the view, loading it in the background if it is not cached.
+     *
+     * @param view the view to set the typeface on
+     * @param fontFamily the name of the font in the assets
+     * @param fallback called with a null typeface if the font could not be loaded, or null to
+     *     leave the view's typeface as it is
+     */
+    void load(final TextView view, String fontFamily, final TypefaceCache.Callback fallback) {
+        Typeface tf = TypefaceCache.getCachedTypeface(fontFamily);
+        if (tf != null) {
+            view.setTypeface(tf);
+            return;
+        }
+
+        mFontFamily = fontFamily;
+        TypefaceCache.loadTypefaceAsync(
+                view.getContext(),
+                fontFamily,
+                new TypefaceCache.Callback() {
+                    @Override
+                    public void onTypefaceLoaded(String family, Typeface typeface) {
+                        if (!family.equals(mFontFamily)) {
+                            // A typeface was set since the load started
+                            return;
+                        }
+                        mFontFamily = null;
+                        if (typeface != null) {
+                            view.setTypeface(typeface);
+                        } else if (fallback != null) {
+                            fallback.onTypefaceLoaded(family, null);
+                        }
+                    }
+                });
+    }
+
+    /** Drop the font that is loading, if any, so that it is not applied when it arrives. */
+    void cancel() {
+        mFontFamily = null;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.support.v4.text.PrecomputedTextCompat;
+import android.text.SpannableString;
+import android.text.TextPaint;
+
+/**
+ * <p>A text measured ahead of time for a {@link FontTextView}, ready to be applied with
+ * {@link FontTextView#setPrecomputedText(PrecomputedFontText)}.</p>
+ *
+ * <p>This does for FontTextView what {@link android.text.PrecomputedText} does for TextView, and
+ * works on every API level the library supports. {@link #create(CharSequence, Params)} can be
+ * called on any thread and does all of the work that would otherwise happen on the main thread
+ * when the text is bound:</p>
+ *
+ * <ul>
+ *   <li>links are found and their spans attached,
+ *   <li>the text is measured for TextView's own layout, through {@link PrecomputedTextCompat},
+ *   <li>in the justify and word ellipsize modes, the text is broken into lines, words are
+ *       measured and positioned, and lines that do not fit are ellipsized.
+ * </ul>
+ *
+ * <p>The result is only valid for the view state captured in its {@link Params}. If the view has
+ * changed by the time the text is applied, e.g. it has been given a different width, anything
+ * that no longer matches is recomputed on the main thread as usual.</p>
+ *
+ * <pre>
+ * final PrecomputedFontText.Params params = textView.getPrecomputedTextParams();
+ * executor.execute(new Runnable() {
+ *     public void run() {
+ *         final PrecomputedFontText text = PrecomputedFontText.create(body, params);
+ *         textView.post(new Runnable() {
+ *             public void run() {
+ *                 textView.setPrecomputedText(text);
+ *             }
+ *         });
+ *     }
+ * });
+ * </pre>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public final class PrecomputedFontText {
+
+    private final CharSequence text;
+    private final Params params;
+    private final boolean hasLinks;
+    private final PrecomputedTextCompat precomputedText;
+    private final WordLayout wordLayout;
+
+    private PrecomputedFontText(
+            CharSequence text,
+            Params params,
+            boolean hasLinks,
+            PrecomputedTextCompat precomputedText,
+            WordLayout wordLayout) {
+        this.text = text;
+        this.params = params;
+        this.hasLinks = hasLinks;
+        this.precomputedText = precomputedText;
+        this.wordLayout = wordLayout;
+    }
+
+    /**
+     * Measure a text for a view. This is safe to call from any thread, but is slow enough that
+     * it should not be called on the main thread.
+     *
+     * @param text the text to measure
+     * @param params the state of the view the text will be shown in, from
+     *     {@link FontTextView#getPrecomputedTextParams()}
+     * @return the measured text
+     */
+    public static PrecomputedFontText create(CharSequence text, Params params) {
+        SpannableString linkableText = new SpannableString(text);
+        boolean hasLinks = false;
+        if (params.linkType != FontTextView.LINK_TYPE_NONE) {
+            PrecomputedLinks links = PrecomputedLinks.create(text, params.linkType);
+            int count = links.getLinkCount();
+            for (int i = 0; i < count; i++) {
+                int start = links.getLinkStart(i);
+                int end = links.getLinkEnd(i);
+                FontTextView.LinkSpan span =
+                        new FontTextView.LinkSpan(
+                                text.subSequence(start, end).toString(),
+                                links.getLinkType(i),
+                                params.linkColor,
+                                params.linkUnderline);
+                linkableText.setSpan(span, start, end, 0);
+            }
+            hasLinks = count != 0;
+        }
+
+        PrecomputedTextCompat precomputedText =
+                PrecomputedTextCompat.create(linkableText, params.textMetrics);
+
+        WordLayout wordLayout = null;
+        if (params.justify || params.wordEllipsize) {
+            // Measure with a copy, as the params may be in use on other threads
+            TextPaint paint = new TextPaint(params.paint);
+            wordLayout = new WordLayout();
+            wordLayout.reset(
+                    linkableText,
+                    params.justify,
+                    paint,
+                    -1,
+                    params.width,
+                    params.maxLines,
+                    params.visibleLines,
+                    params.ellipsize);
+            WordLayoutBuilder.breakLines(
+                    wordLayout, linkableText, paint, FontTextView.ELLIPSIS, null);
+        }
+
+        return new PrecomputedFontText(
+                linkableText, params, hasLinks, precomputedText, wordLayout);
+    }
+
+    /** @return the text, with spans for any links found */
+    public CharSequence getText() {
+        return text;
+    }
+
+    public Params getParams() {
+        return params;
+    }
+
+    boolean hasLinks() {
+        return hasLinks;
+    }
+
+    PrecomputedTextCompat getPrecomputedText() {
+        return precomputedText;
+    }
+
+    /** @return the lines for the justify or word ellipsize modes, or null in the normal mode */
+    WordLayout getWordLayout() {
+        return wordLayout;
+    }
+
+    /**
+     * <p>The state of a {@link FontTextView} that affects how its text is measured, captured on
+     * the main thread so the text can be measured on another.</p>
+     *
+     * <p>Params are immutable and can be shared between threads, so one instance can be used for
+     * every row of a list whose text views are styled alike.</p>
+     */
+    public static final class Params {
+
+        final TextPaint paint;
+        final float width;
+        final boolean justify;
+        final boolean wordEllipsize;
+        final boolean ellipsize;
+        final int maxLines;
+        final int visibleLines;
+        final int linkType;
+        final int linkColor;
+        final boolean linkUnderline;
+        final PrecomputedTextCompat.Params textMetrics;
+
+        Params(
+                TextPaint paint,
+                float width,
+                boolean justify,
+                boolean wordEllipsize,
+                boolean ellipsize,
+                int maxLines,
+                int visibleLines,
+                int linkType,
+                int linkColor,
+                boolean linkUnderline,
+                PrecomputedTextCompat.Params textMetrics) {
+            this.paint = paint;
+            this.width = width;
+            this.justify = justify;
+            this.wordEllipsize = wordEllipsize;
+            this.ellipsize = ellipsize;
+            this.maxLines = maxLines;
+            this.visibleLines = visibleLines;
+            this.linkType = linkType;
+            this.linkColor = linkColor;
+            this.linkUnderline = linkUnderline;
+            this.textMetrics = textMetrics;
+        }
+
+        /** @return the width available to the text, excluding padding */
+        public float getWidth() {
+            return width;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.util.LruCache;
+import android.util.Patterns;
+
+import java.util.regex.Pattern;
+
+import util.android.textviews.core.LinkTokenizer;
+
+/**
+ * <p>The links found in a text, ready to be applied to a {@link FontTextView} with
+ * {@link FontTextView#setLinkText(PrecomputedLinks)}.</p>
+ *
+ * <p>{@link #create(CharSequence, int)} can be called on any thread, so links can be found in the
+ * background, e.g. while a list item is being prepared, leaving only the spans to be attached on
+ * the main thread. Results are kept in an LRU keyed by the text content and link types, so binding
+ * the same text again, such as when a list row is recycled, does not scan it again.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public final class PrecomputedLinks {
+
+    private static final int DEFAULT_CACHE_SIZE = 256;
+
+    static final LinkTokenizer sLinkTokenizer =
+            new LinkTokenizer(
+                    new Pattern[] {
+                        Patterns.WEB_URL,
+                        Pattern.compile("(#\\w+)"),
+                        Pattern.compile("(@\\w+)"),
+                        Patterns.EMAIL_ADDRESS
+                    },
+                    new int[] {
+                        FontTextView.LINK_TYPE_WEB,
+                        FontTextView.LINK_TYPE_HASHTAG,
+                        FontTextView.LINK_TYPE_SCREENNAME,
+                        FontTextView.LINK_TYPE_EMAIL
+                    });
+
+    private static LruCache<Key, int[]> sCache = new LruCache<>(DEFAULT_CACHE_SIZE);
+
+    private final CharSequence text;
+    private final int linkType;
+    private final int[] tokens;
+
+    private PrecomputedLinks(CharSequence text, int linkType, int[] tokens) {
+        this.text = text;
+        this.linkType = linkType;
+        this.tokens = tokens;
+    }
+
+    /**
+     * Find the links in a text. This is safe to call from any thread.
+     *
+     * @param text the text to search
+     * @param linkType the link types to look for, e.g. {@link FontTextView#LINK_TYPE_ALL}
+     * @return the links found
+     */
+    public static PrecomputedLinks create(CharSequence text, int linkType) {
+        Key key = new Key(text.toString(), linkType);
+        LruCache<Key, int[]> cache = getCache();
+        int[] tokens = cache.get(key);
+        if (tokens == null) {
+            tokens = sLinkTokenizer.tokenize(text, linkType);
+            cache.put(key, tokens);
+        }
+        return new PrecomputedLinks(text, linkType, tokens);
+    }
+
+    /**
+     * Change the number of texts whose links are remembered. This clears the cache.
+     *
+     * @param maxSize maximum number of texts
+     */
+    public static synchronized void setCacheSize(int maxSize) {
+        sCache = new LruCache<>(maxSize);
+    }
+
+    /** Forget the links found in all texts. */
+    public static void evictAll() {
+        getCache().evictAll();
+    }
+
+    private static synchronized LruCache<Key, int[]> getCache() {
+        return sCache;
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public int getLinkType() {
+        return linkType;
+    }
+
+    public int getLinkCount() {
+        return tokens.length / LinkTokenizer.TOKEN_SIZE;
+    }
+
+    public int getLinkStart(int index) {
+        return tokens[index * LinkTokenizer.TOKEN_SIZE + LinkTokenizer.TOKEN_START];
+    }
+
+    public int getLinkEnd(int index) {
+        return tokens[index * LinkTokenizer.TOKEN_SIZE + LinkTokenizer.TOKEN_END];
+    }
+
+    /** @return the type of the link, one of the FontTextView LINK_TYPE_ constants */
+    public int getLinkType(int index) {
+        return tokens[index * LinkTokenizer.TOKEN_SIZE + LinkTokenizer.TOKEN_TYPE];
+    }
+
+    private static final class Key {
+        private final String text;
+        private final int linkType;
+
+        Key(String text, int linkType) {
+            this.text = text;
+            this.linkType = linkType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return linkType == key.linkType && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + linkType;
+        }
+    }
+}
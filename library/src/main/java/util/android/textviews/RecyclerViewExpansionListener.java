@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * <p>Notifies a RecyclerView adapter when an {@link ExpandableTextView} in one of its items is
+ * expanded or collapsed. Only the holder's item is notified, with
+ * {@link ExpandableTextView#PAYLOAD_EXPANSION} as the payload.</p>
+ *
+ * <pre>
+ * synopsis.setOnExpansionChangeListener(new RecyclerViewExpansionListener(adapter, this));
+ * </pre>
+ *
+ * <p>The library is compiled against RecyclerView but does not depend on it. Only this class
+ * refers to it, so apps that do not include RecyclerView can still use ExpandableTextView, as
+ * long as they do not use this class.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public class RecyclerViewExpansionListener
+        implements ExpandableTextView.OnExpansionChangeListener {
+
+    private final RecyclerView.Adapter<?> adapter;
+    private final RecyclerView.ViewHolder holder;
+
+    /**
+     * @param adapter The adapter showing the view
+     * @param holder  The holder the view belongs to
+     */
+    public RecyclerViewExpansionListener(
+            RecyclerView.Adapter<?> adapter, RecyclerView.ViewHolder holder) {
+        this.adapter = adapter;
+        this.holder = holder;
+    }
+
+    @Override
+    public void onExpansionChanged(ExpandableTextView view, boolean expanded) {
+        int position = holder.getAdapterPosition();
+        if (position != RecyclerView.NO_POSITION) {
+            adapter.notifyItemChanged(position, ExpandableTextView.PAYLOAD_EXPANSION);
+        }
+    }
+}
@@ -18,7 +18,14 @@ package util.android.textviews;
 
 import android.content.Context;
 import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.Typeface;
+import android.text.Layout;
+import android.text.TextPaint;
 import android.util.AttributeSet;
 
 import util.android.textviews.shimmer.ShimmerViewBase;
@@ -37,6 +44,10 @@ import util.android.textviews.shimmer.ShimmerViewHelper;
  * </pre>
  * </p>
  * <p>
+ * <p>Large or long text can be expensive to draw every frame of the animation. With
+ * {@link #setMaskCacheEnabled(boolean)} the text is drawn once into an alpha mask while the view
+ * shimmers, and each frame only fills the mask with the moving gradient.</p>
+ * <p>
  * <p><b>XML attributes</b></p>
  * <p>
  * <p>See {@link util.android.textviews.R.styleable#ShimmerView ShimmerView attributes},{@link util.android.textviews.R.styleable#FontTextView FontTextView attributes},
@@ -49,6 +60,16 @@ public class ShimmerTextView extends FontTextView implements ShimmerViewBase {
 
     private ShimmerViewHelper shimmerViewHelper;
 
+    private boolean maskCacheEnabled;
+    // coverage of the text, drawn once and then filled with the gradient each frame
+    // only non-null while the mask cache is in use
+    private Bitmap mask;
+    private Canvas maskCanvas;
+    private Paint maskPaint;
+    // the text layout the mask was drawn from, as TextView makes a new one for most changes
+    private Layout maskLayout;
+    private boolean maskValid;
+
     public ShimmerTextView(Context context) {
         super(context);
         shimmerViewHelper = new ShimmerViewHelper(this, getPaint(), null);
@@ -133,19 +154,117 @@ public class ShimmerTextView extends FontTextView implements ShimmerViewBase {
         }
     }
 
+    public boolean isMaskCacheEnabled() {
+        return maskCacheEnabled;
+    }
+
+    /**
+     * <p>Draw the text into an alpha mask once, and draw only the mask each frame while
+     * shimmering. The cost of a frame then no longer depends on the length of the text, at the
+     * cost of an 8-bit bitmap the size of the view.</p>
+     * <p>
+     * <p>The mask is drawn again when the text, size or typeface changes. Everything drawn by
+     * the text view is in the mask, so compound drawables are tinted by the gradient too.</p>
+     *
+     * @param enabled true to cache the text in a mask while shimmering
+     */
+    public void setMaskCacheEnabled(boolean enabled) {
+        maskCacheEnabled = enabled;
+        if (!enabled) {
+            releaseMask();
+        }
+        invalidate();
+    }
+
+    @Override
+    public void setTypeface(Typeface tf) {
+        super.setTypeface(tf);
+        maskValid = false;
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+        super.onTextChanged(s, start, before, count);
+        maskValid = false;
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        maskValid = false;
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
+        maskValid = false;
         if (shimmerViewHelper != null) {
             shimmerViewHelper.onSizeChanged();
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        releaseMask();
+    }
+
     @Override
     public void onDraw(Canvas canvas) {
         if (shimmerViewHelper != null) {
             shimmerViewHelper.onDraw();
         }
-        super.onDraw(canvas);
+        if (maskCacheEnabled && isShimmering() && getWidth() > 0 && getHeight() > 0) {
+            drawMask(canvas);
+        } else {
+            super.onDraw(canvas);
+        }
+    }
+
+    /**
+     * Fill the cached mask with the gradient, drawing the text into it first if it is out of
+     * date.
+     */
+    private void drawMask(Canvas canvas) {
+        TextPaint paint = getPaint();
+        Shader shader = paint.getShader();
+        if (!maskValid || maskLayout != getLayout()) {
+            int width = getWidth();
+            int height = getHeight();
+            if (mask == null || mask.getWidth() != width || mask.getHeight() != height) {
+                releaseMask();
+                mask = Bitmap.createBitmap(width, height, Bitmap.Config.ALPHA_8);
+                maskCanvas = new Canvas(mask);
+                maskPaint = new Paint();
+            } else {
+                mask.eraseColor(Color.TRANSPARENT);
+            }
+
+            // only the coverage of the glyphs is kept, so they are drawn without the gradient
+            paint.setShader(null);
+            int saveCount = maskCanvas.save();
+            maskCanvas.translate(-getScrollX(), -getScrollY());
+            super.onDraw(maskCanvas);
+            maskCanvas.restoreToCount(saveCount);
+            paint.setShader(shader);
+
+            maskLayout = getLayout();
+            maskValid = true;
+        }
+
+        // an alpha mask is drawn with the paint's shader
+        maskPaint.setShader(shader);
+        canvas.drawBitmap(mask, getScrollX(), getScrollY(), maskPaint);
+    }
+
+    private void releaseMask() {
+        if (mask != null) {
+            mask.recycle();
+        }
+        mask = null;
+        maskCanvas = null;
+        maskPaint = null;
+        maskLayout = null;
+        maskValid = false;
     }
 }
\ No newline at end of file
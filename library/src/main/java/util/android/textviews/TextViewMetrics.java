@@ -0,0 +1,202 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.os.Build;
+import android.os.Trace;
+import android.view.View;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * <p>Reports how long the expensive steps of {@link FontTextView} and its subclasses take:
+ * measuring, rebuilding the justified or ragged line layout, drawing it, ellipsizing lines,
+ * scanning for links and {@link ExpandableTextView}'s ellipsis.</p>
+ *
+ * <p>Nothing is timed until a {@link Listener} is installed with {@link #setListener(Listener)};
+ * until then each step costs a single static field check, so the hooks can stay in release
+ * builds. While a listener is installed, each step is also wrapped in an {@link Trace} section
+ * on API 18 and higher, so it shows up in system traces.</p>
+ *
+ * <p>{@link Recorder} is a listener that keeps counts and total durations for each event, both
+ * for every view together and for each view.</p>
+ *
+ * <pre>
+ * TextViewMetrics.Recorder recorder = new TextViewMetrics.Recorder();
+ * TextViewMetrics.setListener(recorder);
+ * ...
+ * long drawNanos = recorder.getNanos(TextViewMetrics.EVENT_DRAW_JUSTIFIED);
+ * </pre>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public final class TextViewMetrics {
+
+    /** {@code onMeasure}, including TextView's own layout. */
+    public static final int EVENT_MEASURE = 0;
+    /** The justified or ragged line layout was rebuilt. */
+    public static final int EVENT_LAYOUT_REBUILD = 1;
+    /** A pass of {@link FontTextView#onDrawJustified}. */
+    public static final int EVENT_DRAW_JUSTIFIED = 2;
+    /** A pass of {@link FontTextView#onDrawRagged}. */
+    public static final int EVENT_DRAW_RAGGED = 3;
+    /** A line was shortened to end with an ellipsis. */
+    public static final int EVENT_ELLIPSIZE = 4;
+    /** The text, or an edited part of it, was scanned for links. */
+    public static final int EVENT_LINK_SCAN = 5;
+    /** {@link ExpandableTextView} worked out its collapsed text. */
+    public static final int EVENT_ADD_ELLIPSE = 6;
+    /** The number of events; events are numbered from 0. */
+    public static final int EVENT_COUNT = 7;
+
+    private static final String[] EVENT_NAMES = {
+        "FontTextView.measure",
+        "FontTextView.rebuildLayout",
+        "FontTextView.drawJustified",
+        "FontTextView.drawRagged",
+        "FontTextView.ellipsize",
+        "FontTextView.scanLinks",
+        "ExpandableTextView.addEllipse"
+    };
+
+    private static Listener sListener;
+
+    private TextViewMetrics() {
+        throw new IllegalStateException("Utility class. Should not be directly instantiated");
+    }
+
+    /** Receives the duration of each step as it finishes, on the main thread. */
+    public interface Listener {
+
+        /**
+         * @param view the view the step was for
+         * @param event one of the EVENT_ constants
+         * @param durationNanos how long the step took
+         */
+        void onEvent(View view, int event, long durationNanos);
+    }
+
+    /**
+     * Install a listener, or remove it with null. This should be called on the main thread.
+     *
+     * @param listener the listener to report to
+     */
+    public static void setListener(Listener listener) {
+        sListener = listener;
+    }
+
+    public static Listener getListener() {
+        return sListener;
+    }
+
+    /** @return the name of an event, as used for its trace section */
+    public static String getEventName(int event) {
+        return EVENT_NAMES[event];
+    }
+
+    /**
+     * Start timing a step.
+     *
+     * @param event one of the EVENT_ constants
+     * @return the start time to pass to {@link #end}, or 0 if no listener is installed
+     */
+    static long begin(int event) {
+        if (sListener == null) {
+            return 0;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(EVENT_NAMES[event]);
+        }
+        return Math.max(1, System.nanoTime());
+    }
+
+    /**
+     * Finish timing a step and report it.
+     *
+     * @param view the view the step was for
+     * @param event one of the EVENT_ constants
+     * @param start the value returned by {@link #begin}
+     */
+    static void end(View view, int event, long start) {
+        if (start == 0) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+        Listener listener = sListener;
+        if (listener != null) {
+            listener.onEvent(view, event, duration);
+        }
+    }
+
+    /**
+     * A listener that keeps the number of times each event happened and their total duration,
+     * for all views and for each view. Views are held weakly.
+     */
+    public static class Recorder implements Listener {
+
+        private final long[] counts = new long[EVENT_COUNT];
+        private final long[] nanos = new long[EVENT_COUNT];
+        // counts followed by durations for each view
+        private final Map<View, long[]> views = new WeakHashMap<>();
+
+        @Override
+        public synchronized void onEvent(View view, int event, long durationNanos) {
+            counts[event]++;
+            nanos[event] += durationNanos;
+
+            long[] stats = views.get(view);
+            if (stats == null) {
+                stats = new long[EVENT_COUNT * 2];
+                views.put(view, stats);
+            }
+            stats[event]++;
+            stats[EVENT_COUNT + event] += durationNanos;
+        }
+
+        public synchronized long getCount(int event) {
+            return counts[event];
+        }
+
+        public synchronized long getNanos(int event) {
+            return nanos[event];
+        }
+
+        public synchronized long getCount(View view, int event) {
+            long[] stats = views.get(view);
+            return stats != null ? stats[event] : 0;
+        }
+
+        public synchronized long getNanos(View view, int event) {
+            long[] stats = views.get(view);
+            return stats != null ? stats[EVENT_COUNT + event] : 0;
+        }
+
+        /** Forget everything recorded so far. */
+        public synchronized void reset() {
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                counts[i] = 0;
+                nanos[i] = 0;
+            }
+            views.clear();
+        }
+    }
+}
@@ -16,18 +16,48 @@
 
 package util.android.textviews;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.AssetFileDescriptor;
 import android.content.res.AssetManager;
 import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 import android.util.LruCache;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * <p>Maintain one typeface cache for all widgets.</p>
  *
+ * <p>Typefaces can be loaded synchronously with {@link #loadTypeface(Context, String)}, or on a
+ * background thread with {@link #loadTypefaceAsync(Context, String, Callback)}. Calling
+ * {@link #preload(Context, String...)} from {@link android.app.Application#onCreate()} warms the
+ * cache so that views inflated later find their fonts ready.</p>
+ *
+ * <p>By default the 12 most recently used typefaces are kept. The cache can instead be limited to
+ * a number of bytes with {@link #setMaxBytes(int)}, in which case each typeface is costed at the
+ * size of its font file. Fonts that must never be reloaded can be kept out of the LRU with
+ * {@link #pin(String...)}, and {@link #onTrimMemory(int)} should be called from the
+ * application's callback of the same name.</p>
+ *
  * @author Jeff Sutton
  * @since 1.2.1
  */
@@ -38,24 +68,560 @@ public class TypefaceCache {
     }
 
     private static final String LOGTAG = TypefaceCache.class.getSimpleName();
-    private static final LruCache<String, Typeface> sTypefaceCache = new LruCache<>(12);
+    private static final int DEFAULT_MAX_ENTRIES = 12;
+    private static final int BASE_INDEX = 4;
+    /** Cost used for a font whose file size cannot be read. */
+    private static final int DEFAULT_FONT_BYTES = 64 * 1024;
 
+    private static final Object sCacheLock = new Object();
+    private static TypefaceLruCache sTypefaceCache =
+            new TypefaceLruCache(DEFAULT_MAX_ENTRIES, false);
+    private static final Map<String, Typeface> sPinnedTypefaces = new HashMap<>();
+    private static final Set<String> sPinnedNames = new HashSet<>();
+    private static final Map<String, Integer> sFontBytes = new HashMap<>();
+    /** Typefaces derived from a cached font, indexed by style, followed by the font itself. */
+    private static final Map<String, Typeface[]> sStyledTypefaces = new HashMap<>();
+    /** System typefaces, indexed by style. */
+    private static final Map<String, Typeface[]> sSystemTypefaces = new HashMap<>();
+    private static long sHitCount;
+    private static long sMissCount;
+    private static long sEvictionCount;
+    private static long sTrimCount;
+    private static long sLoadCount;
+    private static long sLoadTimeNanos;
+    private static final Map<String, PendingLoad> sPendingLoads = new HashMap<>();
+    private static ExecutorService sExecutor;
+    private static String[] sFontDirectories = {"", "fonts"};
+    private static String[] sFontExtensions = {".ttf", ".otf"};
+    private static FontAssetIndex sFontIndex;
+    private static Handler sMainHandler;
+
+    /**
+     * <p>Get a typeface only if it has already been loaded.</p>
+     *
+     * @param fontFamily The name of the font
+     * @return The cached Typeface, or null if it has not been loaded
+     */
+    public static Typeface getCachedTypeface(String fontFamily) {
+        synchronized (sCacheLock) {
+            Typeface tf = peek(fontFamily);
+            if (tf != null) {
+                sHitCount++;
+            } else {
+                sMissCount++;
+            }
+            return tf;
+        }
+    }
+
+    /**
+     * <p>Load a typeface, blocking until it is available.</p>
+     *
+     * <p>If the same font is already being loaded in the background this waits for that load to
+     * finish rather than starting another. A load that is queued but has not started yet is run
+     * on the calling thread instead. Likewise a load started here is shared with callers on other
+     * threads, including {@link #loadTypefaceAsync(Context, String, Callback)}.</p>
+     *
+     * @param context    Context used to access the assets
+     * @param fontFamily The name of the font
+     * @return The loaded Typeface
+     * @throws IOException if the font cannot be found in the assets
+     */
     public static Typeface loadTypeface(Context context, String fontFamily) throws IOException {
-        Typeface tf = sTypefaceCache.get(fontFamily);
+        Typeface tf = getCachedTypeface(fontFamily);
+        if (tf != null) {
+            return tf;
+        }
+
+        PendingLoad load;
+        synchronized (sPendingLoads) {
+            load = sPendingLoads.get(fontFamily);
+            if (load == null) {
+                // Register the load so that callers on other threads wait for it too
+                load = newLoad(context, fontFamily);
+                sPendingLoads.put(fontFamily, load);
+            }
+        }
+        // Run the load here unless it has already started, rather than waiting behind any
+        // preloads queued on the executor. The queued copy then does nothing when it is reached.
+        load.run();
+
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted loading font: " + fontFamily);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * <p>Load a typeface in the given style, blocking until it is available. Derived typefaces
+     * are cached alongside the font they come from, so asking again for the same family and
+     * style returns the same Typeface.</p>
+     *
+     * @param context    Context used to access the assets
+     * @param fontFamily The name of the font
+     * @param style      One of {@link Typeface#NORMAL}, {@link Typeface#BOLD},
+     *                   {@link Typeface#ITALIC} or {@link Typeface#BOLD_ITALIC}
+     * @return The loaded Typeface
+     * @throws IOException if the font cannot be found in the assets
+     */
+    public static Typeface loadTypeface(Context context, String fontFamily, int style)
+            throws IOException {
+        Typeface base = loadTypeface(context, fontFamily);
+        synchronized (sCacheLock) {
+            return getStyled(fontFamily, base, style);
+        }
+    }
+
+    /**
+     * <p>Get a system typeface by family name, such as "serif", in the given style.</p>
+     *
+     * @param familyName The name of the family
+     * @param style      One of {@link Typeface#NORMAL}, {@link Typeface#BOLD},
+     *                   {@link Typeface#ITALIC} or {@link Typeface#BOLD_ITALIC}
+     * @return The Typeface, or null if the system returns none
+     */
+    public static Typeface getSystemTypeface(String familyName, int style) {
+        synchronized (sCacheLock) {
+            Typeface[] styles = sSystemTypefaces.get(familyName);
+            if (styles == null) {
+                styles = new Typeface[4];
+                sSystemTypefaces.put(familyName, styles);
+            }
+            int index = toStyleIndex(style);
+            if (styles[index] == null) {
+                styles[index] = Typeface.create(familyName, index);
+            }
+            return styles[index];
+        }
+    }
+
+    /**
+     * <p>Load a typeface on a background thread.</p>
+     *
+     * <p>Several requests for the same font share a single load. If the font is already cached
+     * the returned Future is complete, but the callback is still delivered asynchronously.</p>
+     *
+     * @param context    Context used to access the assets
+     * @param fontFamily The name of the font
+     * @param callback   Optional callback, delivered on the main thread once loading finishes
+     * @return A Future that completes with the Typeface, or fails if the font cannot be loaded
+     */
+    public static Future<Typeface> loadTypefaceAsync(Context context, String fontFamily,
+                                                     Callback callback) {
+        PendingLoad load;
+        boolean start = false;
+        synchronized (sPendingLoads) {
+            load = sPendingLoads.get(fontFamily);
+            if (load == null) {
+                load = newLoad(context, fontFamily);
+                sPendingLoads.put(fontFamily, load);
+                start = true;
+            }
+            if (callback != null) {
+                load.callbacks.add(callback);
+            }
+        }
+
+        if (start) {
+            // Only check, the caller has already counted its own hit or miss
+            if (peek(fontFamily) != null) {
+                // Nothing to load, so complete straight away
+                load.run();
+            } else {
+                getExecutor().execute(load);
+            }
+        }
+        return load;
+    }
+
+    /**
+     * <p>Start loading fonts on a background thread so that they are ready when views need them.
+     * This is best called from {@link android.app.Application#onCreate()}.</p>
+     *
+     * @param context      Context used to access the assets
+     * @param fontFamilies The names of the fonts to load
+     */
+    public static void preload(Context context, String... fontFamilies) {
+        for (String fontFamily : fontFamilies) {
+            loadTypefaceAsync(context, fontFamily, null);
+        }
+    }
+
+    /**
+     * <p>Keep at most the given number of typefaces, not counting pinned ones. This replaces any
+     * byte budget set with {@link #setMaxBytes(int)}.</p>
+     *
+     * @param maxEntries The maximum number of typefaces to cache
+     */
+    public static void setMaxEntries(int maxEntries) {
+        resize(maxEntries, false);
+    }
+
+    /**
+     * <p>Keep typefaces until the total size of their font files reaches the given budget, not
+     * counting pinned ones. This replaces any limit set with {@link #setMaxEntries(int)}.</p>
+     *
+     * <p>Font sizes are only read while a byte budget is set, so set it before loading fonts.
+     * A font loaded without one is costed at a default size until it is loaded again.</p>
+     *
+     * @param maxBytes The maximum total size of the cached fonts, in bytes
+     */
+    public static void setMaxBytes(int maxBytes) {
+        resize(maxBytes, true);
+    }
+
+    /**
+     * <p>Keep these fonts loaded until they are unpinned, regardless of the cache limits or
+     * memory pressure. Fonts that are already cached are moved out of the LRU.</p>
+     *
+     * @param fontFamilies The names of the fonts to pin
+     */
+    public static void pin(String... fontFamilies) {
+        synchronized (sCacheLock) {
+            for (String fontFamily : fontFamilies) {
+                sPinnedNames.add(fontFamily);
+                Typeface tf = sTypefaceCache.remove(fontFamily);
+                if (tf != null) {
+                    sPinnedTypefaces.put(fontFamily, tf);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Return pinned fonts to the LRU, where they may be evicted.</p>
+     *
+     * @param fontFamilies The names of the fonts to unpin
+     */
+    public static void unpin(String... fontFamilies) {
+        synchronized (sCacheLock) {
+            for (String fontFamily : fontFamilies) {
+                sPinnedNames.remove(fontFamily);
+                Typeface tf = sPinnedTypefaces.remove(fontFamily);
+                if (tf != null) {
+                    sTypefaceCache.add(fontFamily, tf);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Release cached typefaces when the system is low on memory. Call this from
+     * {@link android.app.Application#onTrimMemory(int)}. Pinned fonts are kept.</p>
+     *
+     * @param level The trim level passed to the callback
+     */
+    public static void onTrimMemory(int level) {
+        synchronized (sCacheLock) {
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                sTypefaceCache.trimAll();
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                    || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+                trimTo(sTypefaceCache.entryCount() / 2);
+            } else {
+                return;
+            }
+        }
+        // Outside the cache lock, as creating a shared span loads its font while holding the
+        // span lock
+        TypefaceSpan.evictShared();
+    }
+
+    /** <p>Remove all typefaces that are not pinned, keeping the statistics.</p> */
+    public static void evictAll() {
+        synchronized (sCacheLock) {
+            sTypefaceCache.trimAll();
+        }
+        TypefaceSpan.evictShared();
+    }
+
+    /** @return The number of typefaces cached, including pinned ones */
+    public static int size() {
+        synchronized (sCacheLock) {
+            return sTypefaceCache.entryCount() + sPinnedTypefaces.size();
+        }
+    }
+
+    public static long hitCount() {
+        synchronized (sCacheLock) {
+            return sHitCount;
+        }
+    }
+
+    public static long missCount() {
+        synchronized (sCacheLock) {
+            return sMissCount;
+        }
+    }
+
+    /** @return The number of typefaces the cache had to drop to make room for another */
+    public static long evictionCount() {
+        synchronized (sCacheLock) {
+            return sEvictionCount;
+        }
+    }
+
+    /**
+     * @return The number of typefaces released by {@link #onTrimMemory(int)} or
+     *     {@link #evictAll()}, which are not counted as evictions
+     */
+    public static long trimCount() {
+        synchronized (sCacheLock) {
+            return sTrimCount;
+        }
+    }
+
+    /** @return The number of fonts read from the assets */
+    public static long loadCount() {
+        synchronized (sCacheLock) {
+            return sLoadCount;
+        }
+    }
+
+    /** @return The total time spent reading fonts from the assets, in nanoseconds */
+    public static long loadTimeNanos() {
+        synchronized (sCacheLock) {
+            return sLoadTimeNanos;
+        }
+    }
+
+    private static Typeface peek(String fontFamily) {
+        synchronized (sCacheLock) {
+            Typeface tf = sPinnedTypefaces.get(fontFamily);
+            return tf != null ? tf : sTypefaceCache.get(fontFamily);
+        }
+    }
+
+    private static Typeface getStyled(String fontFamily, Typeface base, int style) {
+        int index = toStyleIndex(style);
+        Typeface[] styles = sStyledTypefaces.get(fontFamily);
+        if (styles == null || styles[BASE_INDEX] != base) {
+            // First use, or the font was reloaded since the styles were derived
+            styles = new Typeface[BASE_INDEX + 1];
+            styles[BASE_INDEX] = base;
+            sStyledTypefaces.put(fontFamily, styles);
+        }
+        if (styles[index] == null) {
+            styles[index] = Typeface.create(base, index);
+        }
+        return styles[index];
+    }
+
+    /**
+     * Map a style to an index into the style arrays, treating anything out of range as normal in
+     * the same way as {@link Typeface#create(Typeface, int)}.
+     */
+    static int toStyleIndex(int style) {
+        return style < Typeface.NORMAL || style > Typeface.BOLD_ITALIC ? Typeface.NORMAL : style;
+    }
+
+    /**
+     * Work out the style implied by the suffix of a font name, e.g. "-BoldItalic", without
+     * allocating a lower case copy of the name.
+     *
+     * @return the style, or -1 if the name has no style suffix
+     */
+    private static int getStyleFromName(String fontFamily) {
+        if (endsWithIgnoreCase(fontFamily, "-bold")) {
+            return Typeface.BOLD;
+        } else if (endsWithIgnoreCase(fontFamily, "-regular")) {
+            return Typeface.NORMAL;
+        } else if (endsWithIgnoreCase(fontFamily, "-italic")) {
+            return Typeface.ITALIC;
+        } else if (endsWithIgnoreCase(fontFamily, "-bolditalic")) {
+            return Typeface.BOLD_ITALIC;
+        }
+        return -1;
+    }
+
+    private static boolean endsWithIgnoreCase(String s, String suffix) {
+        int offset = s.length() - suffix.length();
+        return offset >= 0 && s.regionMatches(true, offset, suffix, 0, suffix.length());
+    }
+
+    private static void resize(int maxSize, boolean bytes) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        synchronized (sCacheLock) {
+            TypefaceLruCache old = sTypefaceCache;
+            sTypefaceCache = new TypefaceLruCache(maxSize, bytes);
+            copy(old, sTypefaceCache);
+        }
+    }
+
+    /**
+     * Shrink the cache by copying the most recently used entries into a smaller one, as
+     * LruCache.trimToSize() is not available before API 17.
+     */
+    private static void trimTo(int maxEntries) {
+        TypefaceLruCache old = sTypefaceCache;
+        sTypefaceCache = new TypefaceLruCache(old.maxSize(), old.bytes);
+        Map<String, Typeface> entries = old.snapshot();
+        int skip = entries.size() - maxEntries;
+        for (Map.Entry<String, Typeface> entry : entries.entrySet()) {
+            if (skip-- > 0) {
+                sTrimCount++;
+                sStyledTypefaces.remove(entry.getKey());
+            } else {
+                sTypefaceCache.add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void copy(TypefaceLruCache from, TypefaceLruCache to) {
+        // The snapshot is ordered from least to most recently used
+        for (Map.Entry<String, Typeface> entry : from.snapshot().entrySet()) {
+            to.add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static int getFontBytes(Context context, String path) {
+        AssetManager assets = context.getResources().getAssets();
+        try {
+            AssetFileDescriptor fd = assets.openFd(path);
+            try {
+                return (int) fd.getLength();
+            } finally {
+                fd.close();
+            }
+        } catch (IOException e) {
+            // The asset is compressed, so read its uncompressed length instead
+            InputStream inputStream = null;
+            try {
+                inputStream = assets.open(path);
+                return inputStream.available();
+            } catch (IOException e2) {
+                return DEFAULT_FONT_BYTES;
+            } finally {
+                if (inputStream != null) {
+                    try {
+                        inputStream.close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>Set the asset directories that fonts are looked up in, in order of preference. By default
+     * these are the root of the assets and "fonts".</p>
+     *
+     * @param directories Directories relative to the assets root, "" being the root itself
+     */
+    public static synchronized void setFontDirectories(String... directories) {
+        sFontDirectories = directories.clone();
+        sFontIndex = null;
+    }
+
+    /**
+     * <p>Set the extensions that may be left off a font name, in order of preference. By default
+     * these are ".ttf" then ".otf".</p>
+     *
+     * @param extensions File extensions, including the dot
+     */
+    public static synchronized void setFontExtensions(String... extensions) {
+        sFontExtensions = extensions.clone();
+        sFontIndex = null;
+    }
+
+    private static synchronized FontAssetIndex getFontIndex(Context context) {
+        if (sFontIndex == null) {
+            sFontIndex = new FontAssetIndex(
+                    context.getResources().getAssets(), sFontDirectories, sFontExtensions);
+        }
+        return sFontIndex;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, LOGTAG);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    private static synchronized Handler getMainHandler() {
+        if (sMainHandler == null) {
+            sMainHandler = new Handler(Looper.getMainLooper());
+        }
+        return sMainHandler;
+    }
+
+    /**
+     * Create a load of a font that is not yet cached, to be registered in
+     * {@link #sPendingLoads} so that every caller shares it.
+     */
+    private static PendingLoad newLoad(Context context, final String fontFamily) {
+        final Context appContext = context.getApplicationContext() != null
+                ? context.getApplicationContext() : context;
+        return new PendingLoad(fontFamily, new Callable<Typeface>() {
+            @Override
+            public Typeface call() throws Exception {
+                Typeface tf = peek(fontFamily);
+                return tf != null ? tf : createTypeface(appContext, fontFamily);
+            }
+        });
+    }
+
+    private static Typeface createTypeface(Context context, String fontFamily) throws IOException {
+        Typeface tf = peek(fontFamily);
         if (tf == null) {
 
             Log.d(LOGTAG, "loading font: " + fontFamily);
-            tf = Typeface.createFromAsset(context.getAssets(), getAssetPath(context, fontFamily));
-            if (fontFamily.toLowerCase().endsWith("-bold")) {
-                tf = Typeface.create(tf, Typeface.BOLD);
-            } else if (fontFamily.toLowerCase().endsWith("-regular")) {
-                tf = Typeface.create(tf, Typeface.NORMAL);
-            } else if (fontFamily.toLowerCase().endsWith("-italic")) {
-                tf = Typeface.create(tf, Typeface.ITALIC);
-            } else if (fontFamily.toLowerCase().endsWith("-bolditalic")) {
-                tf = Typeface.create(tf, Typeface.BOLD_ITALIC);
+            long start = System.nanoTime();
+            String path = getAssetPath(context, fontFamily);
+            tf = Typeface.createFromAsset(context.getAssets(), path);
+            int style = getStyleFromName(fontFamily);
+            if (style >= 0) {
+                tf = Typeface.create(tf, style);
+            }
+            long loadTime = System.nanoTime() - start;
+            boolean costInBytes;
+            synchronized (sCacheLock) {
+                costInBytes = sTypefaceCache.bytes && !sFontBytes.containsKey(fontFamily);
+            }
+            // Only open the asset again for its size when there is a byte budget, and only once
+            // for each font
+            int bytes = costInBytes ? getFontBytes(context, path) : -1;
+            synchronized (sCacheLock) {
+                sLoadCount++;
+                sLoadTimeNanos += loadTime;
+                if (bytes >= 0) {
+                    sFontBytes.put(fontFamily, bytes);
+                }
+                if (sPinnedNames.contains(fontFamily)) {
+                    sPinnedTypefaces.put(fontFamily, tf);
+                } else {
+                    sTypefaceCache.add(fontFamily, tf);
+                }
             }
-            sTypefaceCache.put(fontFamily, tf);
 
         }
         return tf;
@@ -64,14 +630,27 @@ public class TypefaceCache {
     /**
      * <p>Look to see if an font exists in the assets folder.</p>
      * <p>
-     * <p>If a file cannot be found, this method will also check if a file with .tff or .otf
-     * appended to the name exists.  This allows you to specify just the font name in your code,
-     * rather than the full filename.</p>
+     * <p>The font directories are listed once and the result is indexed, so a lookup does not
+     * touch the assets. If a file cannot be found, this method will also check for a file with
+     * one of the font extensions appended to the name.  This allows you to specify just the font
+     * name in your code, rather than the full filename.</p>
      *
      * @param fontName The name of the font file you want to locate
      * @return String representing the actual name of the font file
      */
     private static String getAssetPath(Context context, String fontName) throws IOException {
+        String path = getFontIndex(context).find(fontName);
+        if (path != null) {
+            return path;
+        }
+        if (fontName.indexOf('/') >= 0) {
+            // A path outside the indexed directories
+            return probeAssetPath(context, fontName);
+        }
+        throw new IOException("Unable to load font from assets: " + fontName);
+    }
+
+    private static String probeAssetPath(Context context, String fontName) throws IOException {
         AssetManager assetManager = context.getResources().getAssets();
         InputStream inputStream = null;
         String findFontName = fontName;
@@ -102,4 +681,121 @@ public class TypefaceCache {
         }
         return findFontName;
     }
+
+    /**
+     * An LRU of typefaces, costed either as one per entry or by the size of the font file. Only
+     * accessed while holding sCacheLock.
+     */
+    private static class TypefaceLruCache extends LruCache<String, Typeface> {
+        private final boolean bytes;
+        private int entryCount;
+        /** Whether entries are being removed by a trim rather than to make room. */
+        private boolean trimming;
+
+        TypefaceLruCache(int maxSize, boolean bytes) {
+            super(maxSize);
+            this.bytes = bytes;
+        }
+
+        int entryCount() {
+            return entryCount;
+        }
+
+        @Override
+        protected int sizeOf(String key, Typeface value) {
+            if (!bytes) {
+                return 1;
+            }
+            Integer size = sFontBytes.get(key);
+            return size != null ? size : DEFAULT_FONT_BYTES;
+        }
+
+        @Override
+        protected void entryRemoved(
+                boolean evicted, String key, Typeface oldValue, Typeface newValue) {
+            if (newValue == null) {
+                entryCount--;
+                if (!sPinnedNames.contains(key)) {
+                    sStyledTypefaces.remove(key);
+                }
+                if (trimming) {
+                    sTrimCount++;
+                } else if (evicted) {
+                    sEvictionCount++;
+                }
+            }
+        }
+
+        /** Remove every entry, counting them as trimmed rather than evicted. */
+        void trimAll() {
+            trimming = true;
+            try {
+                evictAll();
+            } finally {
+                trimming = false;
+            }
+        }
+
+        void add(String key, Typeface value) {
+            if (put(key, value) == null) {
+                entryCount++;
+            }
+        }
+    }
+
+    /**
+     * <p>Receives the result of {@link #loadTypefaceAsync(Context, String, Callback)}.</p>
+     */
+    public interface Callback {
+        /**
+         * Called on the main thread once the font has been loaded.
+         *
+         * @param fontFamily The name of the font that was requested
+         * @param typeface   The loaded Typeface, or null if it could not be loaded
+         */
+        void onTypefaceLoaded(String fontFamily, Typeface typeface);
+    }
+
+    /**
+     * A background load of one font, shared by everyone who asks for it while it is running.
+     */
+    private static class PendingLoad extends FutureTask<Typeface> {
+        private final String fontFamily;
+        private final List<Callback> callbacks = new ArrayList<>();
+
+        PendingLoad(String fontFamily, Callable<Typeface> callable) {
+            super(callable);
+            this.fontFamily = fontFamily;
+        }
+
+        @Override
+        protected void done() {
+            final List<Callback> toNotify;
+            synchronized (sPendingLoads) {
+                sPendingLoads.remove(fontFamily);
+                toNotify = new ArrayList<>(callbacks);
+            }
+
+            Typeface result = null;
+            try {
+                result = get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Log.w(LOGTAG, "Unable to load font: " + fontFamily, e.getCause());
+            }
+
+            if (!toNotify.isEmpty()) {
+                final Typeface typeface = result;
+                getMainHandler().post(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (Callback callback : toNotify) {
+                            callback.onTypefaceLoaded(fontFamily, typeface);
+                        }
+                    }
+                });
+            }
+        }
+    }
 }
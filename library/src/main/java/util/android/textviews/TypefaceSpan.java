@@ -21,11 +21,24 @@ import android.graphics.Paint;
 import android.graphics.Typeface;
 import android.text.TextPaint;
 import android.text.style.MetricAffectingSpan;
+import android.util.LruCache;
 
 
 public class TypefaceSpan extends MetricAffectingSpan {
 
+    /** The number of font families whose shared spans are kept. */
+    private static final int MAX_SHARED_FAMILIES = 12;
+
+    /**
+     * Shared spans, indexed by style. Bounded, and cleared by
+     * {@link TypefaceCache#onTrimMemory(int)}, as each span keeps its typeface reachable.
+     */
+    private static final LruCache<String, TypefaceSpan[]> sSpans =
+            new LruCache<>(MAX_SHARED_FAMILIES);
+
     private Typeface mTypeface;
+    /** Whether the font was loaded, rather than replaced by a fallback. */
+    private boolean mLoaded;
 
 
     public TypefaceSpan(Context context, String typefaceName) {
@@ -34,16 +47,67 @@ public class TypefaceSpan extends MetricAffectingSpan {
 
     public TypefaceSpan(Context context, String typefaceName, int style) {
         try {
-            mTypeface = Typeface.create(TypefaceCache.loadTypeface(context, typefaceName), style);
+            mTypeface = TypefaceCache.loadTypeface(context, typefaceName, style);
+            mLoaded = true;
         } catch (Exception err) {
             mTypeface = setTypefaceFromAttrs(typefaceName, style);
         }
     }
 
+    /**
+     * Get a shared span for the typeface and style, creating it the first time it is asked for.
+     *
+     * <p>A span object can only be attached once to a given Spannable; setting it again moves it.
+     * Use a shared span once per text, and create new spans for repeated ranges within the same
+     * text.</p>
+     *
+     * <p>A span for a font that could not be loaded is not shared, so the font is tried again
+     * the next time it is asked for.</p>
+     *
+     * @param context      Context used to load the font
+     * @param typefaceName The name of the font
+     * @param style        The style of the font
+     * @return A TypefaceSpan that may be shared with other texts
+     */
+    public static TypefaceSpan obtain(Context context, String typefaceName, int style) {
+        int index = TypefaceCache.toStyleIndex(style);
+        synchronized (sSpans) {
+            TypefaceSpan[] spans = sSpans.get(typefaceName);
+            if (spans != null && spans[index] != null) {
+                return spans[index];
+            }
+            TypefaceSpan span = new TypefaceSpan(context, typefaceName, index);
+            if (span.mLoaded) {
+                if (spans == null) {
+                    spans = new TypefaceSpan[4];
+                    sSpans.put(typefaceName, spans);
+                }
+                spans[index] = span;
+            }
+            return span;
+        }
+    }
+
+    /** Drop the shared spans, so that they no longer keep their typefaces reachable. */
+    static void evictShared() {
+        synchronized (sSpans) {
+            sSpans.evictAll();
+        }
+    }
+
+    /**
+     * Get a shared span for the typeface in its normal style.
+     *
+     * @see #obtain(Context, String, int)
+     */
+    public static TypefaceSpan obtain(Context context, String typefaceName) {
+        return obtain(context, typefaceName, Typeface.NORMAL);
+    }
+
     private Typeface setTypefaceFromAttrs(String familyName, int styleIndex) {
         Typeface tf = null;
         if (familyName != null) {
-            tf = Typeface.create(familyName, styleIndex);
+            tf = TypefaceCache.getSystemTypeface(familyName, styleIndex);
         }
 
         return tf;
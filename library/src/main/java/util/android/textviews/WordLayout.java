@@ -0,0 +1,291 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Spanned;
+import android.text.TextUtils;
+import android.text.style.CharacterStyle;
+
+/**
+ * The result of breaking a {@link FontTextView}'s text into lines for the justified and ragged
+ * (word ellipsize) draw modes.
+ *
+ * <p>A layout is computed once for a given text, drawable width, paint and line limit, and is
+ * then replayed by every subsequent draw until one of those inputs changes. Each line is made up
+ * of runs: a run is a word, or part of a word between span transitions, with its x offset from
+ * the left padding, its width and the character styles that apply to it.
+ *
+ * <p>Everything needed to draw is held in primitive arrays that are reused when the layout is
+ * rebuilt, so drawing a computed layout does not allocate.
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class WordLayout {
+
+    /** Words are spread so the line fills the drawable width. */
+    static final int LINE_JUSTIFIED = 0;
+    /** Words are separated by their natural spacing. */
+    static final int LINE_RAGGED = 1;
+    /** The line is drawn as-is, e.g. the last line of a paragraph. */
+    static final int LINE_RAW = 2;
+    /** The text contains no spaces and is laid out one character at a time. */
+    static final int LINE_CHARACTERS = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private CharSequence text;
+    boolean justify;
+    float width;
+    int maxLines;
+    int visibleLines;
+    boolean ellipsize;
+    private Typeface typeface;
+    private float textSize;
+    private float textScaleX;
+    private float letterSpacing;
+    private int flags;
+    /** The {@link PaintState} generation of the view's paint, or -1 if not built for a view. */
+    private int paintGeneration;
+
+    /** The characters of every line, one after another, as they will be drawn. */
+    char[] chars = new char[INITIAL_CAPACITY * 8];
+    int charCount;
+
+    int lineCount;
+    int[] lineNumbers = new int[INITIAL_CAPACITY];
+    int[] lineTypes = new int[INITIAL_CAPACITY];
+    /** Offset into {@link #chars} at which each line starts. */
+    int[] lineStarts = new int[INITIAL_CAPACITY];
+    /** Index of the first run of each line; the line ends at the first run of the next. */
+    int[] lineRunStarts = new int[INITIAL_CAPACITY];
+    int[] lineRunEnds = new int[INITIAL_CAPACITY];
+
+    int runCount;
+    /** Offset into {@link #chars} of the first character of each run. */
+    int[] runStarts = new int[INITIAL_CAPACITY];
+    int[] runEnds = new int[INITIAL_CAPACITY];
+    float[] runX = new float[INITIAL_CAPACITY];
+    float[] runWidths = new float[INITIAL_CAPACITY];
+    /** Index into {@link #spans} of the first style applied to each run. */
+    int[] runSpanStarts = new int[INITIAL_CAPACITY];
+    int[] runSpanEnds = new int[INITIAL_CAPACITY];
+
+    CharacterStyle[] spans = new CharacterStyle[INITIAL_CAPACITY];
+    int spanCount;
+
+    /**
+     * Clear the layout and record the inputs it is about to be computed for. The backing arrays
+     * are kept so a rebuild only allocates if the new text needs more room.
+     *
+     * @param paintGeneration the {@link PaintState} generation of the paint, or -1 when the
+     *     paint is not a view's
+     */
+    void reset(
+            CharSequence text,
+            boolean justify,
+            Paint paint,
+            int paintGeneration,
+            float width,
+            int maxLines,
+            int visibleLines,
+            boolean ellipsize) {
+        this.text = text;
+        this.justify = justify;
+        this.width = width;
+        this.maxLines = maxLines;
+        this.visibleLines = visibleLines;
+        this.ellipsize = ellipsize;
+        this.typeface = paint.getTypeface();
+        this.textSize = paint.getTextSize();
+        this.textScaleX = paint.getTextScaleX();
+        this.letterSpacing = getLetterSpacing(paint);
+        this.flags = paint.getFlags();
+        this.paintGeneration = paintGeneration;
+
+        // Drop references to the old spans so they can be collected
+        for (int i = 0; i < spanCount; i++) {
+            spans[i] = null;
+        }
+        charCount = 0;
+        lineCount = 0;
+        runCount = 0;
+        spanCount = 0;
+    }
+
+    /**
+     * Check whether this layout was computed for the given inputs and can be replayed as-is. The
+     * paint is identified by its {@link PaintState} generation, so none of its attributes have to
+     * be read back.
+     *
+     * @return true if none of the inputs that affect line breaking have changed
+     */
+    boolean matches(
+            CharSequence text,
+            boolean justify,
+            int paintGeneration,
+            float width,
+            int maxLines,
+            int visibleLines,
+            boolean ellipsize) {
+        return this.text == text
+                && paintGeneration >= 0
+                && this.paintGeneration == paintGeneration
+                && matchesLines(justify, width, maxLines, visibleLines, ellipsize);
+    }
+
+    /**
+     * Check whether this layout was computed for the given inputs, ignoring the identity of the
+     * text. Used for a layout computed ahead of time for a copy of the text, see
+     * {@link PrecomputedFontText}.
+     *
+     * @return true if none of the inputs other than the text have changed
+     */
+    boolean matchesParams(
+            boolean justify,
+            Paint paint,
+            float width,
+            int maxLines,
+            int visibleLines,
+            boolean ellipsize) {
+        return matchesLines(justify, width, maxLines, visibleLines, ellipsize)
+                && this.typeface == paint.getTypeface()
+                && this.textSize == paint.getTextSize()
+                && this.textScaleX == paint.getTextScaleX()
+                && this.letterSpacing == getLetterSpacing(paint)
+                && this.flags == paint.getFlags();
+    }
+
+    private boolean matchesLines(
+            boolean justify, float width, int maxLines, int visibleLines, boolean ellipsize) {
+        return this.justify == justify
+                && this.width == width
+                && this.maxLines == maxLines
+                && this.visibleLines == visibleLines
+                && this.ellipsize == ellipsize;
+    }
+
+    /** Mark the layout as stale so the next call to {@link #matches} fails. */
+    void invalidate() {
+        text = null;
+    }
+
+    /**
+     * Start a new line, copying the characters that will be drawn for it.
+     *
+     * @param number the 1-based line number, used to position the line vertically
+     * @param type one of the LINE_ constants
+     * @param line the text of the line
+     * @return the index of the line
+     */
+    int addLine(int number, int type, CharSequence line) {
+        int length = line.length();
+        ensureCharCapacity(charCount + length);
+        TextUtils.getChars(line, 0, length, chars, charCount);
+
+        if (lineCount == lineNumbers.length) {
+            int size = lineCount * 2;
+            lineNumbers = grow(lineNumbers, size);
+            lineTypes = grow(lineTypes, size);
+            lineStarts = grow(lineStarts, size);
+            lineRunStarts = grow(lineRunStarts, size);
+            lineRunEnds = grow(lineRunEnds, size);
+        }
+        lineNumbers[lineCount] = number;
+        lineTypes[lineCount] = type;
+        lineStarts[lineCount] = charCount;
+        lineRunStarts[lineCount] = runCount;
+        lineRunEnds[lineCount] = runCount;
+        charCount += length;
+        return lineCount++;
+    }
+
+    /**
+     * Add a run to the most recently added line.
+     *
+     * @param line the text of the line, as passed to {@link #addLine}
+     * @param start start of the run within the line
+     * @param end end of the run within the line
+     * @param x offset of the run from the start of the line
+     * @param width measured width of the run
+     */
+    void addRun(CharSequence line, int start, int end, float x, float width) {
+        if (runCount == runStarts.length) {
+            int size = runCount * 2;
+            runStarts = grow(runStarts, size);
+            runEnds = grow(runEnds, size);
+            runX = grow(runX, size);
+            runWidths = grow(runWidths, size);
+            runSpanStarts = grow(runSpanStarts, size);
+            runSpanEnds = grow(runSpanEnds, size);
+        }
+
+        int lineStart = lineStarts[lineCount - 1];
+        runStarts[runCount] = lineStart + start;
+        runEnds[runCount] = lineStart + end;
+        runX[runCount] = x;
+        runWidths[runCount] = width;
+        runSpanStarts[runCount] = spanCount;
+
+        if (line instanceof Spanned) {
+            CharacterStyle[] styles =
+                    ((Spanned) line).getSpans(start, end, CharacterStyle.class);
+            if (spanCount + styles.length > spans.length) {
+                CharacterStyle[] grown =
+                        new CharacterStyle[Math.max(spans.length * 2, spanCount + styles.length)];
+                System.arraycopy(spans, 0, grown, 0, spanCount);
+                spans = grown;
+            }
+            System.arraycopy(styles, 0, spans, spanCount, styles.length);
+            spanCount += styles.length;
+        }
+        runSpanEnds[runCount] = spanCount;
+
+        runCount++;
+        lineRunEnds[lineCount - 1] = runCount;
+    }
+
+    private void ensureCharCapacity(int capacity) {
+        if (capacity > chars.length) {
+            char[] grown = new char[Math.max(chars.length * 2, capacity)];
+            System.arraycopy(chars, 0, grown, 0, charCount);
+            chars = grown;
+        }
+    }
+
+    private static int[] grow(int[] array, int size) {
+        int[] grown = new int[size];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static float[] grow(float[] array, int size) {
+        float[] grown = new float[size];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static float getLetterSpacing(Paint paint) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return paint.getLetterSpacing();
+        }
+        return 0;
+    }
+}
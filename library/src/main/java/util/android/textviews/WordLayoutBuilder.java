@@ -0,0 +1,211 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews;
+
+import android.graphics.Paint;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.CharacterStyle;
+import android.view.View;
+
+import util.android.textviews.core.LineBreaker;
+
+/**
+ * Builds the {@link WordLayout} for the justified and ragged draw modes of {@link FontTextView}.
+ *
+ * <p>Lines are found by the {@link LineBreaker} in the textcore module, measuring with the
+ * paint through a {@link PaintMeasurer}, and are then ellipsized, positioned and split into
+ * styled runs here.
+ *
+ * <p>Everything the builder needs is passed in, the layout's inputs and the paint to measure
+ * with, so it can run on a worker thread as well as during draw. See
+ * {@link PrecomputedFontText}.
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class WordLayoutBuilder {
+
+    private WordLayoutBuilder() {
+        throw new IllegalStateException("Utility class. Should not be directly instantiated");
+    }
+
+    /**
+     * Break the text into lines, filling the layout.
+     *
+     * @param layout the layout, already reset for the text
+     * @param markedText the text, with any styles that apply to it
+     * @param paint the paint that will be used to draw the text
+     * @param ellipsis the ellipsis to end a shortened line with
+     * @param view the view to report {@link TextViewMetrics} for, or null when building on
+     *     another thread
+     */
+    static void breakLines(
+            final WordLayout layout,
+            final CharSequence markedText,
+            final Paint paint,
+            final CharSequence ellipsis,
+            final View view) {
+        final int wrappedType =
+                layout.justify ? WordLayout.LINE_JUSTIFIED : WordLayout.LINE_RAGGED;
+        LineBreaker.breakLines(
+                markedText,
+                new PaintMeasurer(paint),
+                layout.width,
+                layout.maxLines,
+                new LineBreaker.LineConsumer() {
+                    @Override
+                    public void onLine(int number, int start, int end, int type) {
+                        if (type == LineBreaker.LINE_CHARACTERS) {
+                            layoutCharacters(layout, markedText, paint);
+                        } else {
+                            addLine(
+                                    layout,
+                                    markedText,
+                                    paint,
+                                    ellipsis,
+                                    view,
+                                    start,
+                                    end,
+                                    number,
+                                    type == LineBreaker.LINE_WRAPPED
+                                            ? wrappedType
+                                            : WordLayout.LINE_RAW);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Add a line to the layout. Justified and ragged lines have their trailing space removed and
+     * the position of each word calculated. If needed an ellipsis is added on a word boundary.
+     */
+    private static void addLine(
+            WordLayout layout,
+            CharSequence markedText,
+            Paint paint,
+            CharSequence ellipsis,
+            View view,
+            int start,
+            int end,
+            int lineNum,
+            int type) {
+        if (lineNum > layout.maxLines) {
+            return;
+        }
+
+        SpannableStringBuilder builder = new SpannableStringBuilder(markedText, start, end);
+
+        if (type == WordLayout.LINE_RAW) {
+            if (layout.ellipsize && lineNum == layout.maxLines) {
+                ellipsize(paint, builder, layout.width, ellipsis, view);
+            }
+            layout.addLine(lineNum, type, builder);
+            addRuns(layout, builder, paint, 0, builder.length(), 0);
+            return;
+        }
+
+        if (builder.charAt(builder.length() - 1) == ' ') {
+            builder.delete(builder.length() - 1, builder.length());
+        }
+
+        if (layout.ellipsize && (lineNum == layout.maxLines || lineNum == layout.visibleLines)) {
+            ellipsize(paint, builder, layout.width, ellipsis, view);
+        }
+
+        layout.addLine(lineNum, type, builder);
+
+        float spacingWidth = 0;
+        if (type == WordLayout.LINE_JUSTIFIED) {
+            int wordCount = 0;
+            for (int c = 0; c < builder.length(); c++) {
+                if (builder.charAt(c) == ' ' || c == builder.length() - 1) {
+                    wordCount++;
+                }
+            }
+            float lineWidth = AdvanceCache.measureWords(paint, builder, 0, builder.length());
+            spacingWidth = (layout.width - lineWidth) / (wordCount - 1);
+        }
+
+        float xStart = 0;
+        int wordStart = 0;
+        for (int c = 0; c < builder.length(); c++) {
+            if (builder.charAt(c) == ' ' || c == builder.length() - 1) {
+                xStart = addRuns(layout, builder, paint, wordStart, c + 1, xStart) + spacingWidth;
+                wordStart = c + 1;
+            }
+        }
+    }
+
+    private static void ellipsize(
+            Paint paint,
+            SpannableStringBuilder builder,
+            float width,
+            CharSequence ellipsis,
+            View view) {
+        long start = view != null ? TextViewMetrics.begin(TextViewMetrics.EVENT_ELLIPSIZE) : 0;
+        try {
+            new PaintMeasurer(paint).ellipsize(builder, width, ellipsis);
+        } finally {
+            TextViewMetrics.end(view, TextViewMetrics.EVENT_ELLIPSIZE, start);
+        }
+    }
+
+    /**
+     * Add a run to the current line of the layout for each span transition in the given range.
+     *
+     * @return the x position following the last run
+     */
+    private static float addRuns(
+            WordLayout layout, Spanned line, Paint paint, int start, int end, float xStart) {
+        int next;
+        for (int i = start; i < end; i = next) {
+            next = line.nextSpanTransition(i, end, CharacterStyle.class);
+            float width = AdvanceCache.measureText(paint, line, i, next);
+            layout.addRun(line, i, next, xStart, width);
+            xStart += width;
+        }
+        return xStart;
+    }
+
+    /**
+     * Lay out text containing no spaces on a single line, one character at a time. When
+     * justified the characters are spread across the layout's width, otherwise they are
+     * separated by the width of a space.
+     */
+    private static void layoutCharacters(WordLayout layout, CharSequence text, Paint paint) {
+        layout.addLine(1, WordLayout.LINE_CHARACTERS, text);
+
+        float spacingWidth;
+        if (layout.justify) {
+            float wordWidth = 0;
+            for (int i = 0; i < text.length(); i++) {
+                wordWidth += AdvanceCache.measureText(paint, text, i, i + 1);
+            }
+            spacingWidth = (layout.width - wordWidth) / (text.length() - 1);
+        } else {
+            spacingWidth = AdvanceCache.measureText(paint, " ", 0, 1);
+        }
+
+        float xStart = 0;
+        for (int i = 0; i < text.length(); i++) {
+            float width = AdvanceCache.measureText(paint, text, i, i + 1);
+            layout.addRun(text, i, i + 1, xStart, width);
+            xStart += width + spacingWidth;
+        }
+    }
+}
@@ -48,6 +48,8 @@ public class Shimmer {
     private Animator.AnimatorListener animatorListener;
 
     private ObjectAnimator animator;
+    // drives every view started with startShared, created on first use
+    private ShimmerDriver driver;
 
     public Shimmer() {
         repeatCount = DEFAULT_REPEAT_COUNT;
@@ -204,13 +206,53 @@ public class Shimmer {
         }
     }
 
+    /**
+     * <p>Start the shimmer on a view together with every other view started with this method on
+     * this Shimmer. All of the views are moved from one frame callback, in step with each
+     * other, which is much cheaper than an animator per view when many views shimmer at once,
+     * e.g. the rows of a list that is loading.</p>
+     *
+     * <p>Views that are detached, hidden or off screen are skipped, and a list row can simply
+     * be started again when it is bound. The sweep repeats until {@link #stopShared(View)} or
+     * {@link #cancel()} is called; the repeat count and animator listener are not used.</p>
+     *
+     * @param shimmerView the view to shimmer
+     */
+    public <V extends View & ShimmerViewBase> void startShared(V shimmerView) {
+        if (driver == null) {
+            driver = new ShimmerDriver(this);
+        }
+        driver.add(shimmerView);
+    }
+
+    /**
+     * Stop the shimmer on a view started with {@link #startShared(View)}.
+     *
+     * @param shimmerView the view to stop
+     */
+    public <V extends View & ShimmerViewBase> void stopShared(V shimmerView) {
+        if (driver != null) {
+            driver.remove(shimmerView);
+        }
+    }
+
     public boolean isAnimating() {
         return animator != null && animator.isRunning();
     }
 
+    /**
+     * @return whether any view started with {@link #startShared(View)} is still shimmering
+     */
+    public boolean isSharedRunning() {
+        return driver != null && driver.isRunning();
+    }
+
     public void cancel() {
         if (animator != null) {
             animator.cancel();
         }
+        if (driver != null) {
+            driver.removeAll();
+        }
     }
 }
\ No newline at end of file
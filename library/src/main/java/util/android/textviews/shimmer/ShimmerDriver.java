@@ -0,0 +1,311 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.shimmer;
+
+import android.annotation.TargetApi;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Drives the shimmer of many views from a single frame callback, for
+ * {@link Shimmer#startShared(View)}.</p>
+ *
+ * <p>Every view is moved to the same point of the sweep on each frame, calling
+ * {@link ShimmerViewBase#setGradientX(float)} directly, so rows of a list shimmer as one. Views
+ * that are hidden or scrolled out of sight are skipped, and when none of the views can be seen
+ * the frame callback stops. It starts again from the next pre-draw of a view's window that finds
+ * one of them visible, such as after it is shown, scrolled back into sight or attached.</p>
+ *
+ * <p>Detached views are dropped, so the driver does not keep a recycled view alive. A view is
+ * added back when it is attached again, until {@link #remove(View)} is called for it.</p>
+ *
+ * <p>Frames come from {@link Choreographer} on API 16 and higher, and from a {@link Handler}
+ * before that. A driver must only be used from the main thread.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+final class ShimmerDriver
+        implements View.OnAttachStateChangeListener, ViewTreeObserver.OnPreDrawListener {
+
+    private static final long FALLBACK_FRAME_DELAY = 16;
+
+    private final Shimmer shimmer;
+    /** The attached views, which are moved on each frame. */
+    private final ArrayList<View> views = new ArrayList<>();
+    /** Every view added and not yet removed, attached or not, held weakly. */
+    private final Set<View> registered =
+            Collections.newSetFromMap(new WeakHashMap<View, Boolean>());
+    /** The observer each attached view's pre-draw listener was counted against. */
+    private final Map<View, ViewTreeObserver> viewObservers = new HashMap<>();
+    /**
+     * The number of attached views in each window. The pre-draw listener is added once per
+     * window, however many of its views shimmer.
+     */
+    private final Map<ViewTreeObserver, Integer> observerCounts = new HashMap<>();
+    private final Rect visibleRect = new Rect();
+    private final Ticker ticker;
+    // frame time at which the first sweep starts, shared by every view
+    // negative until the driver is first started
+    private long startTimeNanos = -1;
+    private boolean running;
+
+    /**
+     * @param shimmer the shimmer whose duration, delays and direction are used
+     */
+    ShimmerDriver(Shimmer shimmer) {
+        this.shimmer = shimmer;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            ticker = new ChoreographerTicker();
+        } else {
+            ticker = new HandlerTicker();
+        }
+    }
+
+    <V extends View & ShimmerViewBase> void add(V view) {
+        // Listen even when detached, to pick the view up again once it is attached
+        if (registered.add(view)) {
+            view.addOnAttachStateChangeListener(this);
+        }
+        if (view.getWindowToken() != null) {
+            track(view);
+        }
+    }
+
+    void remove(View view) {
+        if (!registered.remove(view)) {
+            return;
+        }
+        view.removeOnAttachStateChangeListener(this);
+        untrack(view);
+        stopView(view);
+    }
+
+    void removeAll() {
+        for (View view : new ArrayList<>(registered)) {
+            remove(view);
+        }
+        stop();
+    }
+
+    /**
+     * @return true if any attached view is shimmering, including while the frame callback is
+     *     paused because none of them can be seen
+     */
+    boolean isRunning() {
+        return !views.isEmpty();
+    }
+
+    @Override
+    public void onViewAttachedToWindow(View v) {
+        track(v);
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(View v) {
+        untrack(v);
+    }
+
+    /** Resume the frame callback, if it is paused, when a view's window is about to draw. */
+    @Override
+    public boolean onPreDraw() {
+        if (!running && hasVisibleView()) {
+            start();
+        }
+        return true;
+    }
+
+    private void track(View view) {
+        if (views.contains(view)) {
+            return;
+        }
+        views.add(view);
+        ViewTreeObserver observer = view.getViewTreeObserver();
+        viewObservers.put(view, observer);
+        Integer count = observerCounts.get(observer);
+        if (count == null) {
+            observer.addOnPreDrawListener(this);
+            count = 0;
+        }
+        observerCounts.put(observer, count + 1);
+        start();
+    }
+
+    private void untrack(View view) {
+        if (!views.remove(view)) {
+            return;
+        }
+        ViewTreeObserver observer = viewObservers.remove(view);
+        int count = observerCounts.remove(observer) - 1;
+        if (count > 0) {
+            observerCounts.put(observer, count);
+        } else if (observer.isAlive()) {
+            observer.removeOnPreDrawListener(this);
+        }
+        if (views.isEmpty()) {
+            stop();
+        }
+    }
+
+    private void start() {
+        if (!running) {
+            running = true;
+            ticker.post();
+        }
+    }
+
+    private void stop() {
+        if (running) {
+            running = false;
+            ticker.cancel();
+        }
+        startTimeNanos = -1;
+    }
+
+    private void stopView(View view) {
+        ((ShimmerViewBase) view).setShimmering(false);
+        view.invalidate();
+    }
+
+    /**
+     * Move every visible view to the point of the sweep for a frame. This is called for every
+     * frame, so it must not allocate.
+     *
+     * @param frameTimeNanos the time of the frame
+     */
+    void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (startTimeNanos < 0) {
+            startTimeNanos =
+                    frameTimeNanos + TimeUnit.MILLISECONDS.toNanos(shimmer.getStartDelay());
+        }
+
+        long elapsed = frameTimeNanos - startTimeNanos;
+        boolean visible = false;
+        for (int i = 0, size = views.size(); i < size; i++) {
+            View view = views.get(i);
+            if (!isVisible(view)) {
+                continue;
+            }
+            visible = true;
+            if (elapsed < 0) {
+                continue;
+            }
+
+            ShimmerViewBase shimmerView = (ShimmerViewBase) view;
+            if (!shimmerView.isShimmering()) {
+                shimmerView.setShimmering(true);
+            }
+            shimmerView.setGradientX(getGradientX(elapsed, view.getWidth()));
+        }
+
+        if (visible) {
+            ticker.post();
+        } else {
+            // Pause, keeping the start time so the sweep stays in phase when it resumes
+            running = false;
+        }
+    }
+
+    private boolean hasVisibleView() {
+        for (int i = 0, size = views.size(); i < size; i++) {
+            if (isVisible(views.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Whether any of the view can be seen, so that moving its shimmer is worth a frame. */
+    private boolean isVisible(View view) {
+        return view.getWindowToken() != null
+                && ((ShimmerViewBase) view).isSetUp()
+                && view.isShown()
+                && view.getLocalVisibleRect(visibleRect);
+    }
+
+    /** The position of the sweep across a view of the given width, after some time. */
+    private float getGradientX(long elapsedNanos, int width) {
+        long duration = TimeUnit.MILLISECONDS.toNanos(Math.max(1, shimmer.getDuration()));
+        long cycle = duration + TimeUnit.MILLISECONDS.toNanos(shimmer.getRepeatDelay());
+        float fraction = Math.min(1f, (float) (elapsedNanos % cycle) / duration);
+        if (shimmer.getDirection() == Shimmer.ANIMATION_DIRECTION_RTL) {
+            fraction = 1 - fraction;
+        }
+        return fraction * width;
+    }
+
+    private interface Ticker {
+        void post();
+
+        void cancel();
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private final class ChoreographerTicker implements Ticker, Choreographer.FrameCallback {
+
+        @Override
+        public void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void cancel() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            ShimmerDriver.this.doFrame(frameTimeNanos);
+        }
+    }
+
+    private final class HandlerTicker implements Ticker, Runnable {
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void post() {
+            handler.postDelayed(this, FALLBACK_FRAME_DELAY);
+        }
+
+        @Override
+        public void cancel() {
+            handler.removeCallbacks(this);
+        }
+
+        @Override
+        public void run() {
+            doFrame(System.nanoTime());
+        }
+    }
+}
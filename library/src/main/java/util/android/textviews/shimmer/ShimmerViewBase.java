@@ -1 +1,46 @@
-/* *  Copyright (c) 2015-2017 Jeff Sutton * *  Licensed under the Apache License, Version 2.0 (the "License"); *  you may not use this file except in compliance with the License. *  You may obtain a copy of the License at * *      http://www.apache.org/licenses/LICENSE-2.0 * *  Unless required by applicable law or agreed to in writing, software *  distributed under the License is distributed on an "AS IS" BASIS, *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *  See the License for the specific language governing permissions and *  limitations under the License. */package util.android.textviews.shimmer;/** * Shimmer * User: romainpiel * Date: 10/03/2014 * Time: 17:33 */public interface ShimmerViewBase {    float getGradientX();    void setGradientX(float gradientX);    boolean isShimmering();    void setShimmering(boolean isShimmering);    boolean isSetUp();    void setAnimationSetupCallback(ShimmerViewHelper.AnimationSetupCallback callback);    int getPrimaryColor();    void setPrimaryColor(int primaryColor);    int getReflectionColor();    void setReflectionColor(int reflectionColor);}
\ No newline at end of file
+/*
+ *  Copyright (c) 2015-2017 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.shimmer;
+
+/**
+ * Shimmer
+ * User: romainpiel
+ * Date: 10/03/2014
+ * Time: 17:33
+ */
+public interface ShimmerViewBase {
+
+    float getGradientX();
+
+    void setGradientX(float gradientX);
+
+    boolean isShimmering();
+
+    void setShimmering(boolean isShimmering);
+
+    boolean isSetUp();
+
+    void setAnimationSetupCallback(ShimmerViewHelper.AnimationSetupCallback callback);
+
+    int getPrimaryColor();
+
+    void setPrimaryColor(int primaryColor);
+
+    int getReflectionColor();
+
+    void setReflectionColor(int reflectionColor);
+}
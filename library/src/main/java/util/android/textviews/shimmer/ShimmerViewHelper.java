@@ -1 +1,223 @@
-/* *  Copyright (c) 2015-2017 Jeff Sutton * *  Licensed under the Apache License, Version 2.0 (the "License"); *  you may not use this file except in compliance with the License. *  You may obtain a copy of the License at * *      http://www.apache.org/licenses/LICENSE-2.0 * *  Unless required by applicable law or agreed to in writing, software *  distributed under the License is distributed on an "AS IS" BASIS, *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. *  See the License for the specific language governing permissions and *  limitations under the License. */package util.android.textviews.shimmer;import android.content.res.TypedArray;import android.graphics.LinearGradient;import android.graphics.Matrix;import android.graphics.Paint;import android.graphics.Shader;import android.util.AttributeSet;import android.view.View;import util.android.textviews.R;/** * Shimmer * User: romainpiel * Date: 10/03/2014 * Time: 17:06 */public class ShimmerViewHelper {    private static final int DEFAULT_REFLECTION_COLOR = 0xFFFFFFFF;    private View view;    private Paint paint;    // center position of the gradient    private float gradientX;    // shader applied on the text view    // only null until the first global layout    private LinearGradient linearGradient;    // shader's local matrix    // never null    private Matrix linearGradientMatrix;    private int primaryColor;    // shimmer reflection color    private int reflectionColor;    // true when animating    private boolean isShimmering;    // true after first global layout    private boolean isSetUp;    // callback called after first global layout    private AnimationSetupCallback callback;    public ShimmerViewHelper(View view, Paint paint, AttributeSet attributeSet) {        this.view = view;        this.paint = paint;        init(attributeSet);    }    private void init(AttributeSet attributeSet) {        reflectionColor = DEFAULT_REFLECTION_COLOR;        if (attributeSet != null) {            TypedArray a = view.getContext().obtainStyledAttributes(attributeSet, R.styleable.ShimmerView, 0, 0);            if (a != null) {                try {                    reflectionColor = a.getColor(R.styleable.ShimmerView_reflectionColor, DEFAULT_REFLECTION_COLOR);                } catch (Exception e) {                    android.util.Log.e("ShimmerTextView", "Error while creating the view:", e);                } finally {                    a.recycle();                }            }        }        linearGradientMatrix = new Matrix();    }    public float getGradientX() {        return gradientX;    }    public void setGradientX(float gradientX) {        this.gradientX = gradientX;        view.invalidate();    }    public boolean isShimmering() {        return isShimmering;    }    public void setShimmering(boolean isShimmering) {        this.isShimmering = isShimmering;    }    public boolean isSetUp() {        return isSetUp;    }    public void setAnimationSetupCallback(AnimationSetupCallback callback) {        this.callback = callback;    }    public int getPrimaryColor() {        return primaryColor;    }    public void setPrimaryColor(int primaryColor) {        this.primaryColor = primaryColor;        if (isSetUp) {            resetLinearGradient();        }    }    private void resetLinearGradient() {        // our gradient is a simple linear gradient from textColor to reflectionColor. its axis is at the center        // when it's outside of the view, the outer color (textColor) will be repeated (Shader.TileMode.CLAMP)        // initially, the linear gradient is positioned on the left side of the view        linearGradient = new LinearGradient(-view.getWidth(), 0, 0, 0,                new int[]{                        primaryColor,                        reflectionColor,                        primaryColor,                },                new float[]{                        0,                        0.5f,                        1                },                Shader.TileMode.CLAMP        );        paint.setShader(linearGradient);    }    public int getReflectionColor() {        return reflectionColor;    }    public void setReflectionColor(int reflectionColor) {        this.reflectionColor = reflectionColor;        if (isSetUp) {            resetLinearGradient();        }    }    public void onSizeChanged() {        resetLinearGradient();        if (!isSetUp) {            isSetUp = true;            if (callback != null) {                callback.onSetupAnimation(view);            }        }    }    /**     * content of the wrapping view's onDraw(Canvas)     * MUST BE CALLED BEFORE SUPER STATEMENT     */    public void onDraw() {        // only draw the shader gradient over the text while animating        if (isShimmering) {            // first onDraw() when shimmering            if (paint.getShader() == null) {                paint.setShader(linearGradient);            }            // translate the shader local matrix            linearGradientMatrix.setTranslate(2 * gradientX, 0);            // this is required in order to invalidate the shader's position            linearGradient.setLocalMatrix(linearGradientMatrix);        } else {            // we're not animating, remove the shader from the paint            paint.setShader(null);        }    }    public interface AnimationSetupCallback {        void onSetupAnimation(View target);    }}
\ No newline at end of file
+/*
+ *  Copyright (c) 2015-2017 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.shimmer;
+
+import android.content.res.TypedArray;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.util.AttributeSet;
+import android.view.View;
+
+import util.android.textviews.R;
+
+
+/**
+ * Shimmer
+ * User: romainpiel
+ * Date: 10/03/2014
+ * Time: 17:06
+ *
+ * <p>The gradient is only built when the width of the view or the colours change. Each frame
+ * moves it by translating its local matrix, which is reused, so neither
+ * {@link #setGradientX(float)} nor {@link #onDraw()} allocate.</p>
+ */
+public class ShimmerViewHelper {
+
+    private static final int DEFAULT_REFLECTION_COLOR = 0xFFFFFFFF;
+    private View view;
+    private Paint paint;
+    // center position of the gradient
+    private float gradientX;
+    // shader applied on the text view
+    // only null until the first global layout
+    private LinearGradient linearGradient;
+    // width of the view the gradient was built for
+    private int gradientWidth = -1;
+    // shader's local matrix
+    // never null
+    private Matrix linearGradientMatrix;
+    // gradientX last applied to the matrix, NaN when the shader has no translation yet
+    private float appliedGradientX = Float.NaN;
+    private int primaryColor;
+    // shimmer reflection color
+    private int reflectionColor;
+    // true when animating
+    private boolean isShimmering;
+    // true after first global layout
+    private boolean isSetUp;
+    // callback called after first global layout
+    private AnimationSetupCallback callback;
+
+    public ShimmerViewHelper(View view, Paint paint, AttributeSet attributeSet) {
+        this.view = view;
+        this.paint = paint;
+        init(attributeSet);
+    }
+
+    private void init(AttributeSet attributeSet) {
+
+        reflectionColor = DEFAULT_REFLECTION_COLOR;
+
+        if (attributeSet != null) {
+            TypedArray a = view.getContext().obtainStyledAttributes(attributeSet, R.styleable.ShimmerView, 0, 0);
+            if (a != null) {
+                try {
+                    reflectionColor = a.getColor(R.styleable.ShimmerView_reflectionColor, DEFAULT_REFLECTION_COLOR);
+                } catch (Exception e) {
+                    android.util.Log.e("ShimmerTextView", "Error while creating the view:", e);
+                } finally {
+                    a.recycle();
+                }
+            }
+        }
+
+        linearGradientMatrix = new Matrix();
+    }
+
+    public float getGradientX() {
+        return gradientX;
+    }
+
+    public void setGradientX(float gradientX) {
+        if (this.gradientX == gradientX) {
+            return;
+        }
+        this.gradientX = gradientX;
+        view.invalidate();
+    }
+
+    public boolean isShimmering() {
+        return isShimmering;
+    }
+
+    public void setShimmering(boolean isShimmering) {
+        this.isShimmering = isShimmering;
+    }
+
+    public boolean isSetUp() {
+        return isSetUp;
+    }
+
+    public void setAnimationSetupCallback(AnimationSetupCallback callback) {
+        this.callback = callback;
+    }
+
+    public int getPrimaryColor() {
+        return primaryColor;
+    }
+
+    public void setPrimaryColor(int primaryColor) {
+        if (this.primaryColor == primaryColor && linearGradient != null) {
+            return;
+        }
+        this.primaryColor = primaryColor;
+        if (isSetUp) {
+            resetLinearGradient();
+        }
+    }
+
+    private void resetLinearGradient() {
+
+        // our gradient is a simple linear gradient from textColor to reflectionColor. its axis is at the center
+        // when it's outside of the view, the outer color (textColor) will be repeated (Shader.TileMode.CLAMP)
+        // initially, the linear gradient is positioned on the left side of the view
+        linearGradient = new LinearGradient(-view.getWidth(), 0, 0, 0,
+                new int[]{
+                        primaryColor,
+                        reflectionColor,
+                        primaryColor,
+                },
+                new float[]{
+                        0,
+                        0.5f,
+                        1
+                },
+                Shader.TileMode.CLAMP
+        );
+        gradientWidth = view.getWidth();
+        appliedGradientX = Float.NaN;
+
+        paint.setShader(linearGradient);
+    }
+
+    public int getReflectionColor() {
+        return reflectionColor;
+    }
+
+    public void setReflectionColor(int reflectionColor) {
+        if (this.reflectionColor == reflectionColor && linearGradient != null) {
+            return;
+        }
+        this.reflectionColor = reflectionColor;
+        if (isSetUp) {
+            resetLinearGradient();
+        }
+    }
+
+    public void onSizeChanged() {
+
+        // the gradient only depends on the width
+        if (linearGradient == null || gradientWidth != view.getWidth()) {
+            resetLinearGradient();
+        }
+
+        if (!isSetUp) {
+            isSetUp = true;
+
+            if (callback != null) {
+                callback.onSetupAnimation(view);
+            }
+        }
+    }
+
+    /**
+     * content of the wrapping view's onDraw(Canvas)
+     * MUST BE CALLED BEFORE SUPER STATEMENT
+     */
+    public void onDraw() {
+
+        // only draw the shader gradient over the text while animating
+        // the gradient is null until the first size change
+        if (isShimmering && linearGradient != null) {
+
+            // first onDraw() when shimmering
+            if (paint.getShader() != linearGradient) {
+                paint.setShader(linearGradient);
+            }
+
+            if (gradientX != appliedGradientX) {
+                // translate the shader local matrix
+                linearGradientMatrix.setTranslate(2 * gradientX, 0);
+
+                // this is required in order to invalidate the shader's position
+                linearGradient.setLocalMatrix(linearGradientMatrix);
+                appliedGradientX = gradientX;
+            }
+
+        } else {
+            // we're not animating, remove the shader from the paint
+            paint.setShader(null);
+        }
+
+    }
+
+    public interface AnimationSetupCallback {
+        void onSetupAnimation(View target);
+    }
+}
@@ -24,6 +24,8 @@ import android.support.text.emoji.bundled.BundledEmojiCompatConfig;
 import android.support.v4.provider.FontRequest;
 import android.util.Log;
 
+import util.android.textviews.TypefaceCache;
+
 /**
  * Created by jeffsutton on 02/02/2018.
  */
@@ -38,6 +40,13 @@ public class SampleApplication extends Application {
     public void onCreate() {
         super.onCreate();
 
+        // Load the fonts used by the layouts and spans in the background, so that they are
+        // ready by the time the first activity is inflated
+        TypefaceCache.preload(this,
+                "Audiowide-Regular.ttf",
+                "Audiowide-Regular",
+                "NotoSerifDisplay-Regular");
+
         final EmojiCompat.Config config;
         if (USE_BUNDLED_EMOJI) {
             // Use the bundled font for EmojiCompat
@@ -65,4 +74,10 @@ public class SampleApplication extends Application {
         }
         EmojiCompat.init(config);
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        TypefaceCache.onTrimMemory(level);
+    }
 }
@@ -17,14 +17,15 @@
 package com.example.sample2;
 
 import android.support.v7.widget.RecyclerView;
-import android.util.Log;
 import android.view.View;
 
 
 import com.example.sample2.model.Broadcast;
 
 import util.android.textviews.ExpandableTextView;
+import util.android.textviews.ExpansionStateStore;
 import util.android.textviews.FontTextView;
+import util.android.textviews.RecyclerViewExpansionListener;
 
 /**
  * Created by jeff on 20/11/2015.
@@ -41,18 +42,12 @@ public class BroadcastHolder extends RecyclerView.ViewHolder{
         mAdapter = adapter;
         mTitle = (FontTextView) itemView.findViewById(R.id.title);
         mSynopsis = (ExpandableTextView) itemView.findViewById(R.id.synopsis);
+        mSynopsis.setOnExpansionChangeListener(new RecyclerViewExpansionListener(adapter, this));
     }
 
-    public void bindBroadcast(final Broadcast broadcast, int position) {
+    public void bindBroadcast(final Broadcast broadcast, long itemId, ExpansionStateStore state) {
         mTitle.setText(broadcast.getProgramme().getDisplayTitles().getTitle());
         mSynopsis.setText(broadcast.getProgramme().getShortSynopsis() + "\nhfdsfuihewkjfksdh fkhsdfhisuehfhfourh fgiurehgiheighrehgiuhgoiherog threuhgiurehh\noifgdfgfdgaegregfgdfgfdgrrgghir", true);
-        mSynopsis.setContracted(!broadcast.expanded);
-        mSynopsis.setOnViewClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                broadcast.expanded = !mSynopsis.getContracted();
-            }
-        });
-
+        mSynopsis.bindState(state, itemId);
     }
 }
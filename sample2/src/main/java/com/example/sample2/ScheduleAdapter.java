@@ -22,7 +22,12 @@ import android.view.ViewGroup;
 
 import com.example.sample2.model.Broadcast;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import util.android.textviews.ExpandableTextView;
+import util.android.textviews.ExpansionStateStore;
 
 /**
  * Created by jeff on 20/11/2015.
@@ -30,9 +35,14 @@ import java.util.List;
 public class ScheduleAdapter extends RecyclerView.Adapter<BroadcastHolder> {
 
     private final List<Broadcast> mBroadcasts;
+    private final ExpansionStateStore mExpansionState = new ExpansionStateStore();
+    // Stable ids handed out in order of first use, one per broadcast pid, so no two broadcasts
+    // can share an id and with it an expanded state
+    private final Map<String, Long> mItemIds = new HashMap<>();
 
     public ScheduleAdapter(List<Broadcast> mBroadcasts) {
         this.mBroadcasts = mBroadcasts;
+        setHasStableIds(true);
     }
 
     @Override
@@ -44,7 +54,27 @@ public class ScheduleAdapter extends RecyclerView.Adapter<BroadcastHolder> {
     @Override
     public void onBindViewHolder(BroadcastHolder holder, int position) {
         Broadcast broadcast = mBroadcasts.get(position);
-        holder.bindBroadcast(broadcast, position);
+        holder.bindBroadcast(broadcast, getItemId(position), mExpansionState);
+    }
+
+    @Override
+    public void onBindViewHolder(BroadcastHolder holder, int position, List<Object> payloads) {
+        if (payloads.contains(ExpandableTextView.PAYLOAD_EXPANSION)) {
+            // The synopsis has already expanded or collapsed itself
+            return;
+        }
+        super.onBindViewHolder(holder, position, payloads);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String pid = mBroadcasts.get(position).getPid();
+        Long id = mItemIds.get(pid);
+        if (id == null) {
+            id = (long) mItemIds.size();
+            mItemIds.put(pid, id);
+        }
+        return id;
     }
 
     @Override
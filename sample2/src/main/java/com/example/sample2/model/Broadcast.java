@@ -29,8 +29,6 @@ import javax.annotation.Generated;
 public class Broadcast implements Parcelable
 {
 
-    public boolean expanded = false;
-
     @SerializedName("is_repeat")
     @Expose
     private boolean isRepeat;
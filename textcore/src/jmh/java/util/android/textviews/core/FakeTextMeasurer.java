@@ -0,0 +1,61 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+/**
+ * A {@link TextMeasurer} with fixed widths for each character, so that benchmarks measure the
+ * layout algorithms rather than a font renderer, and give the same lines on every machine.
+ * Narrow, wide and other characters are given different widths, roughly as a proportional font
+ * would.
+ */
+final class FakeTextMeasurer implements TextMeasurer {
+
+    @Override
+    public float measure(CharSequence text, int start, int end) {
+        float width = 0;
+        for (int i = start; i < end; i++) {
+            width += advance(text.charAt(i));
+        }
+        return width;
+    }
+
+    @Override
+    public float measureUncached(CharSequence text, int start, int end) {
+        return measure(text, start, end);
+    }
+
+    private static float advance(char c) {
+        switch (c) {
+            case 'i':
+            case 'l':
+            case 'j':
+            case '.':
+            case ',':
+            case '\'':
+                return 4;
+            case ' ':
+                return 5;
+            case 'm':
+            case 'w':
+            case 'M':
+            case 'W':
+                return 14;
+            default:
+                return Character.isUpperCase(c) ? 11 : 9;
+        }
+    }
+}
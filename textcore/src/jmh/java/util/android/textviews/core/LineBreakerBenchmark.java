@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Break paragraphs of increasing length into lines. The time should grow linearly with the
+ * length of the text.
+ */
+@State(Scope.Benchmark)
+public class LineBreakerBenchmark {
+
+    private static final float WIDTH = 480;
+
+    @Param({"1250", "2500", "5000", "10000"})
+    public int length;
+
+    private String text;
+    private TextMeasurer measurer;
+
+    @Setup
+    public void setUp() {
+        text = Texts.paragraphs(length);
+        measurer = new FakeTextMeasurer();
+    }
+
+    @Benchmark
+    public void breakLines(final Blackhole blackhole) {
+        LineBreaker.breakLines(
+                text,
+                measurer,
+                WIDTH,
+                Integer.MAX_VALUE,
+                new LineBreaker.LineConsumer() {
+                    @Override
+                    public void onLine(int number, int start, int end, int type) {
+                        blackhole.consume(end);
+                    }
+                });
+    }
+
+    @Benchmark
+    public float measureWords() {
+        return LineBreaker.measureWords(text, measurer, 0, text.length());
+    }
+}
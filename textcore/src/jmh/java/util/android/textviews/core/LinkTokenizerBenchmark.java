@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.regex.Pattern;
+
+/**
+ * Find web, hashtag, mention and e-mail links in chat and article length text. Plain Java
+ * patterns stand in for Android's {@code Patterns}, which are not available on the JVM.
+ */
+@State(Scope.Benchmark)
+public class LinkTokenizerBenchmark {
+
+    private static final int WEB = 1;
+    private static final int HASHTAG = 1 << 1;
+    private static final int SCREENNAME = 1 << 2;
+    private static final int EMAIL = 1 << 3;
+    private static final int ALL = WEB | HASHTAG | SCREENNAME | EMAIL;
+
+    @Param({"80", "5000"})
+    public int length;
+
+    private String text;
+    private LinkTokenizer tokenizer;
+
+    @Setup
+    public void setUp() {
+        text = Texts.linkedSentences(length);
+        tokenizer =
+                new LinkTokenizer(
+                        new Pattern[] {
+                            Pattern.compile("(https?://|www\\.)[\\w.-]+(/[\\w./?=&%-]*)?"),
+                            Pattern.compile("(#\\w+)"),
+                            Pattern.compile("(@\\w+)"),
+                            Pattern.compile("[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+")
+                        },
+                        new int[] {WEB, HASHTAG, SCREENNAME, EMAIL});
+    }
+
+    @Benchmark
+    public int[] tokenizeAll() {
+        return tokenizer.tokenize(text, ALL);
+    }
+
+    @Benchmark
+    public int[] tokenizeWeb() {
+        return tokenizer.tokenize(text, WEB);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+/** Sample texts for the benchmarks, built the same way on every run. */
+final class Texts {
+
+    private static final String[] WORDS = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+        "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua"
+    };
+
+    private static final String[] SENTENCES = {
+        "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ",
+        "Read more at www.example.org/articles/42 before the meeting. ",
+        "Thanks to @editor and @reviewer for their help. ",
+        "Questions can go to press@example.com at any time. ",
+        "Sed do eiusmod tempor incididunt ut labore et dolore magna aliqua. ",
+        "Follow #news and #weather for updates. "
+    };
+
+    private Texts() {
+        throw new IllegalStateException("Utility class. Should not be directly instantiated");
+    }
+
+    /** Words separated by spaces, with a paragraph break every 60 words. */
+    static String paragraphs(int length) {
+        StringBuilder text = new StringBuilder(length + 16);
+        for (int i = 0; text.length() < length; i++) {
+            if (i > 0) {
+                text.append(i % 60 == 0 ? '\n' : ' ');
+            }
+            text.append(WORDS[i % WORDS.length]);
+        }
+        return text.toString();
+    }
+
+    /** Sentences containing links of every type. */
+    static String linkedSentences(int length) {
+        StringBuilder text = new StringBuilder(length + 80);
+        for (int i = 0; text.length() < length; i++) {
+            text.append(SENTENCES[i % SENTENCES.length]);
+        }
+        return text.toString();
+    }
+}
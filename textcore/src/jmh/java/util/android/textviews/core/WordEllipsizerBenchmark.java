@@ -0,0 +1,61 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Find the ellipsis cut for a line of words, and for a long run with no spaces, such as a URL,
+ * that has to be cut between characters.
+ */
+@State(Scope.Benchmark)
+public class WordEllipsizerBenchmark {
+
+    private static final float ELLIPSIS_WIDTH = 12;
+
+    @Param({"480", "1080"})
+    public float width;
+
+    private String words;
+    private String url;
+    private TextMeasurer measurer;
+
+    @Setup
+    public void setUp() {
+        words = Texts.paragraphs(400).replace('\n', ' ');
+        StringBuilder path = new StringBuilder("https://example.com/");
+        while (path.length() < 400) {
+            path.append("segment/");
+        }
+        url = path.toString();
+        measurer = new FakeTextMeasurer();
+    }
+
+    @Benchmark
+    public int cutWords() {
+        return WordEllipsizer.findCut(measurer, words, 0, words.length(), ELLIPSIS_WIDTH, width);
+    }
+
+    @Benchmark
+    public int cutCharacters() {
+        return WordEllipsizer.findCut(measurer, url, 0, url.length(), ELLIPSIS_WIDTH, width);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+/**
+ * <p>Breaks text into lines of whole words that fit a width.</p>
+ *
+ * <p>A line is ended when the next word would not fit, or at a new line character. Each word,
+ * and the separator before it, is measured once and added to the width of the line, rather than
+ * measuring the whole line again for every word. Text with no spaces at all is reported as a
+ * single line of {@link #LINE_CHARACTERS}, to be laid out one character at a time.</p>
+ *
+ * <p>Lines are passed to a {@link LineConsumer} as they are found, as ranges of the text, so
+ * breaking does not build any result of its own.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public final class LineBreaker {
+
+    /** The line was ended because the next word did not fit. */
+    public static final int LINE_WRAPPED = 0;
+    /** The line ends a paragraph: it is followed by a new line or the end of the text. */
+    public static final int LINE_PARAGRAPH_END = 1;
+    /** The text contains no spaces and should be laid out one character at a time. */
+    public static final int LINE_CHARACTERS = 2;
+
+    private LineBreaker() {
+        throw new IllegalStateException("Utility class. Should not be directly instantiated");
+    }
+
+    /** Receives the lines found by {@link #breakLines}. */
+    public interface LineConsumer {
+
+        /**
+         * @param number the 1-based line number
+         * @param start index of the first character of the line
+         * @param end index after the last character of the line, including any trailing
+         *     separator
+         * @param type one of the LINE_ constants
+         */
+        void onLine(int number, int start, int end, int type);
+    }
+
+    /**
+     * Break a text into lines.
+     *
+     * @param text the text to break
+     * @param measurer measures the words of the text
+     * @param width the width lines must fit in
+     * @param maxLines lines after this many are not reported
+     * @param consumer receives each line in order
+     */
+    public static void breakLines(
+            CharSequence text,
+            TextMeasurer measurer,
+            float width,
+            int maxLines,
+            LineConsumer consumer) {
+        String fullText = text.toString();
+
+        if (fullText.indexOf(' ') == -1) {
+            consumer.onLine(1, 0, fullText.length(), LINE_CHARACTERS);
+            return;
+        }
+
+        int lineNum = 1;
+        int lineStartIndex = 0;
+        int lastWordEnd;
+        int currWordEnd = 0;
+        int nextNewLine = fullText.indexOf('\n');
+
+        // Width of the text from lineStartIndex up to measuredEnd
+        float lineWidth = 0;
+        int measuredEnd = 0;
+
+        while (currWordEnd >= 0 && lineNum <= maxLines) {
+            lastWordEnd = currWordEnd + 1;
+            currWordEnd = fullText.indexOf(' ', lastWordEnd);
+            if (nextNewLine != -1 && nextNewLine < lastWordEnd) {
+                nextNewLine = fullText.indexOf('\n', lastWordEnd);
+            }
+            if (nextNewLine != -1 && nextNewLine < currWordEnd) {
+                currWordEnd = nextNewLine;
+            }
+            if (currWordEnd != -1) {
+                float wordWidth = measurer.measure(fullText, lastWordEnd, currWordEnd);
+                lineWidth += measurer.measure(fullText, measuredEnd, lastWordEnd) + wordWidth;
+                measuredEnd = currWordEnd;
+
+                // A new line can only be the separator that ended the previous word
+                boolean hasNewLine =
+                        lastWordEnd > lineStartIndex && fullText.charAt(lastWordEnd - 1) == '\n';
+                if (lineWidth >= width || hasNewLine) {
+                    consumer.onLine(
+                            lineNum,
+                            lineStartIndex,
+                            lastWordEnd,
+                            hasNewLine ? LINE_PARAGRAPH_END : LINE_WRAPPED);
+                    lineStartIndex = lastWordEnd;
+                    lineWidth = wordWidth;
+                    lineNum++;
+                }
+            } else {
+                lineWidth += measurer.measure(fullText, measuredEnd, fullText.length());
+
+                if (lineWidth >= width) {
+                    consumer.onLine(lineNum, lineStartIndex, lastWordEnd, LINE_WRAPPED);
+                    if (++lineNum <= maxLines) {
+                        consumer.onLine(
+                                lineNum, lastWordEnd, fullText.length(), LINE_PARAGRAPH_END);
+                    }
+                } else {
+                    consumer.onLine(
+                            lineNum, lineStartIndex, fullText.length(), LINE_PARAGRAPH_END);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measure part of a text as the sum of its space separated words and the spaces between
+     * them. Lines are rarely repeated but are made up of words that are, so this lets a caching
+     * measurer reuse the width of each word.
+     *
+     * @param text the text to measure
+     * @param measurer measures each word and space
+     * @param start index of the first character to measure
+     * @param end index after the last character to measure
+     * @return the advance width of the text
+     */
+    public static float measureWords(
+            CharSequence text, TextMeasurer measurer, int start, int end) {
+        float width = 0;
+        int wordStart = start;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ' ') {
+                width += measurer.measure(text, wordStart, i);
+                width += measurer.measure(text, i, i + 1);
+                wordStart = i + 1;
+            }
+        }
+        return width + measurer.measure(text, wordStart, end);
+    }
+}
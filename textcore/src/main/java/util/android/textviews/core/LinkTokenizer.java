@@ -0,0 +1,230 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Finds links of several types in a single pass over the text.</p>
+ *
+ * <p>The patterns for the enabled link types are combined into one alternation, so the text is
+ * scanned once however many types are enabled. Links never overlap: the leftmost link wins, and
+ * if several types match at the same position the longest match wins, with ties going to the type
+ * given first to the constructor. Scanning then carries on after the end of the link.</p>
+ *
+ * <p>Results are returned as a flat array of (start, end, type) triples, in text order.</p>
+ *
+ * <p>A tokenizer is immutable apart from a cache of combined patterns, and is safe to share
+ * between threads.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public final class LinkTokenizer {
+
+    /** Number of ints used to describe each link. */
+    public static final int TOKEN_SIZE = 3;
+    public static final int TOKEN_START = 0;
+    public static final int TOKEN_END = 1;
+    public static final int TOKEN_TYPE = 2;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final Pattern[] patterns;
+    private final int[] types;
+    /** The combined pattern for each type mask, compiled on first use. */
+    private final Pattern[] combined;
+    /** For each type mask, the pattern index of each alternative in the combined pattern. */
+    private final int[][] alternatives;
+    /** For each type mask, the group number of each alternative in the combined pattern. */
+    private final int[][] groups;
+
+    /**
+     * The patterns are combined into one, so they must not use numbered back references or share
+     * group names.
+     *
+     * @param patterns the pattern for each link type, in order of priority
+     * @param types the bit flag for each link type, e.g. FontTextView.LINK_TYPE_WEB
+     */
+    public LinkTokenizer(Pattern[] patterns, int[] types) {
+        if (patterns.length != types.length) {
+            throw new IllegalArgumentException("patterns and types differ in length");
+        }
+        int all = 0;
+        for (int type : types) {
+            all |= type;
+        }
+        if (all < 0 || all > 0xffff) {
+            throw new IllegalArgumentException("Link types must be bit flags in the low 16 bits");
+        }
+        this.patterns = patterns.clone();
+        this.types = types.clone();
+        this.combined = new Pattern[all + 1];
+        this.alternatives = new int[all + 1][];
+        this.groups = new int[all + 1][];
+    }
+
+    /**
+     * Find all links of the given types in the text.
+     *
+     * @param text the text to search
+     * @param typeMask the link types to look for, or-ed together
+     * @return (start, end, type) triples in text order
+     */
+    public int[] tokenize(CharSequence text, int typeMask) {
+        return tokenize(text, 0, text.length(), typeMask);
+    }
+
+    /**
+     * Find all links of the given types that lie within part of the text. The rest of the text is
+     * still visible to look-arounds and word boundaries in the patterns.
+     *
+     * @param text the text to search
+     * @param start index at which to start searching
+     * @param end index at which to stop searching
+     * @param typeMask the link types to look for, or-ed together
+     * @return (start, end, type) triples in text order, with offsets into the whole text
+     */
+    public int[] tokenize(CharSequence text, int start, int end, int typeMask) {
+        int mask = typeMask & (combined.length - 1);
+        Pattern pattern = getCombined(mask);
+        if (pattern == null || start >= end) {
+            return EMPTY;
+        }
+        int[] alternative = alternatives[mask];
+        int[] group = groups[mask];
+
+        Matcher m = pattern.matcher(text);
+        m.useTransparentBounds(true);
+        m.useAnchoringBounds(false);
+        m.region(start, end);
+
+        Matcher[] single = null;
+        int[] tokens = new int[TOKEN_SIZE * 8];
+        int count = 0;
+        while (m.find()) {
+            int linkStart = m.start();
+            int linkEnd = m.end();
+            if (linkEnd == linkStart) {
+                // Guard against patterns that can match nothing
+                if (linkEnd >= end) {
+                    break;
+                }
+                m.region(linkEnd + 1, end);
+                continue;
+            }
+
+            int found = 0;
+            while (m.start(group[found]) < 0) {
+                found++;
+            }
+
+            // The combined pattern prefers earlier alternatives, so check whether a later one
+            // makes a longer match here
+            int best = alternative[found];
+            for (int i = found + 1; i < alternative.length; i++) {
+                if (single == null) {
+                    single = new Matcher[patterns.length];
+                }
+                int index = alternative[i];
+                if (single[index] == null) {
+                    single[index] = patterns[index].matcher(text);
+                    single[index].useTransparentBounds(true);
+                    single[index].useAnchoringBounds(false);
+                }
+                Matcher s = single[index].region(linkStart, end);
+                if (s.lookingAt() && s.end() > linkEnd) {
+                    linkEnd = s.end();
+                    best = index;
+                }
+            }
+
+            if (count + TOKEN_SIZE > tokens.length) {
+                tokens = Arrays.copyOf(tokens, tokens.length * 2);
+            }
+            tokens[count + TOKEN_START] = linkStart;
+            tokens[count + TOKEN_END] = linkEnd;
+            tokens[count + TOKEN_TYPE] = types[best];
+            count += TOKEN_SIZE;
+
+            if (linkEnd != m.end()) {
+                if (linkEnd >= end) {
+                    break;
+                }
+                m.region(linkEnd, end);
+            }
+        }
+        return count == 0 ? EMPTY : Arrays.copyOf(tokens, count);
+    }
+
+    private synchronized Pattern getCombined(int mask) {
+        if (combined[mask] == null && mask != 0) {
+            StringBuilder regex = new StringBuilder();
+            int[] alternative = new int[patterns.length];
+            int[] group = new int[alternative.length];
+            int n = 0;
+            int nextGroup = 1;
+            for (int i = 0; i < patterns.length; i++) {
+                if ((types[i] & mask) == 0) {
+                    continue;
+                }
+                if (n > 0) {
+                    regex.append('|');
+                }
+                regex.append('(').append(inlineFlags(patterns[i].flags()))
+                        .append(patterns[i].pattern()).append(')');
+                alternative[n] = i;
+                group[n] = nextGroup;
+                nextGroup += 1 + patterns[i].matcher("").groupCount();
+                n++;
+            }
+            if (n == 0) {
+                return null;
+            }
+            alternatives[mask] = Arrays.copyOf(alternative, n);
+            groups[mask] = Arrays.copyOf(group, n);
+            combined[mask] = Pattern.compile(regex.toString());
+        }
+        return combined[mask];
+    }
+
+    /** Turn the flags a pattern was compiled with into an inline group, so they survive. */
+    private static String inlineFlags(int flags) {
+        StringBuilder inline = new StringBuilder();
+        if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+            inline.append('i');
+        }
+        if ((flags & Pattern.MULTILINE) != 0) {
+            inline.append('m');
+        }
+        if ((flags & Pattern.DOTALL) != 0) {
+            inline.append('s');
+        }
+        if ((flags & Pattern.UNICODE_CASE) != 0) {
+            inline.append('u');
+        }
+        if ((flags & Pattern.COMMENTS) != 0) {
+            inline.append('x');
+        }
+        if ((flags & Pattern.UNIX_LINES) != 0) {
+            inline.append('d');
+        }
+        return inline.length() == 0 ? "" : "(?" + inline + ")";
+    }
+}
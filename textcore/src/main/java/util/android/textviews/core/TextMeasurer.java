@@ -0,0 +1,51 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+/**
+ * <p>Measures the advance width of text, so that the layout algorithms in this package can run
+ * without a renderer.</p>
+ *
+ * <p>On Android the library adapts a {@code Paint}, through its shared width cache. Tests and
+ * benchmarks use a fake with fixed character widths so that results are deterministic.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public interface TextMeasurer {
+
+    /**
+     * Measure part of a text as a single unit.
+     *
+     * @param text the text to measure
+     * @param start index of the first character to measure
+     * @param end index after the last character to measure
+     * @return the advance width of the text, or 0 for an empty range
+     */
+    float measure(CharSequence text, int start, int end);
+
+    /**
+     * Measure part of a text that is unlikely to be measured again, such as a prefix probed
+     * while searching for a cut point. A measurer with a cache should not keep the result.
+     *
+     * @param text the text to measure
+     * @param start index of the first character to measure
+     * @param end index after the last character to measure
+     * @return the advance width of the text, or 0 for an empty range
+     */
+    float measureUncached(CharSequence text, int start, int end);
+}
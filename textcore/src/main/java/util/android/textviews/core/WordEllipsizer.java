@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+/**
+ * <p>Finds where to cut a line of text so that it fits a width once an ellipsis is added.</p>
+ *
+ * <p>Words are measured once each while walking forward through the line, and the walk stops
+ * at the first word that no longer fits. Text with no word that fits, such as a long URL, is cut
+ * between characters instead, finding the cut point by binary search.</p>
+ *
+ * @author Jeff Sutton
+ * @since 2.4.3
+ */
+public final class WordEllipsizer {
+
+    private WordEllipsizer() {
+        throw new IllegalStateException("Utility class. Should not be directly instantiated");
+    }
+
+    /**
+     * Find where to cut part of a text so that it fits the width once the ellipsis is added.
+     *
+     * @param measurer measures the words of the text
+     * @param text the text to cut
+     * @param start index of the first character of the line
+     * @param end index after the last character of the line
+     * @param ellipsisWidth the width of the ellipsis that will follow the text
+     * @param availableWidth the width the text and ellipsis must fit in
+     * @return {@code end} if the whole line fits; otherwise the end of the text to keep, which is
+     *     the start of a space if any word fits, or else a character boundary
+     */
+    public static int findCut(
+            TextMeasurer measurer,
+            CharSequence text,
+            int start,
+            int end,
+            float ellipsisWidth,
+            float availableWidth) {
+        float limit = availableWidth - ellipsisWidth;
+        float width = 0;
+        int lastFit = -1;
+        int firstSpace = -1;
+        int wordStart = start;
+        boolean overflowed = false;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != ' ') {
+                continue;
+            }
+            if (firstSpace < 0) {
+                firstSpace = i;
+            }
+            width += measurer.measure(text, wordStart, i);
+            if (width >= limit) {
+                overflowed = true;
+                break;
+            }
+            lastFit = i;
+            width += measurer.measure(text, i, i + 1);
+            wordStart = i + 1;
+        }
+
+        if (!overflowed && width + measurer.measure(text, wordStart, end) < limit) {
+            return end;
+        }
+        if (lastFit > start) {
+            return lastFit;
+        }
+        return findCharacterCut(measurer, text, start, firstSpace < 0 ? end : firstSpace, limit);
+    }
+
+    /**
+     * Binary search for the longest run of characters from the start that fits the limit. Each
+     * probe is a one-off prefix, so it is measured without caching.
+     */
+    private static int findCharacterCut(
+            TextMeasurer measurer, CharSequence text, int start, int end, float limit) {
+        int lo = start;
+        int hi = end;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (measurer.measureUncached(text, start, mid) < limit) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        // Do not split a surrogate pair
+        if (lo > start && Character.isHighSurrogate(text.charAt(lo - 1))) {
+            lo--;
+        }
+        return lo;
+    }
+}
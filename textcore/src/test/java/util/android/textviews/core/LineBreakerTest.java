@@ -0,0 +1,145 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LineBreakerTest {
+
+    /** Every character is 10 wide. */
+    static final TextMeasurer MONOSPACE =
+            new TextMeasurer() {
+                @Override
+                public float measure(CharSequence text, int start, int end) {
+                    return Math.max(0, end - start) * 10f;
+                }
+
+                @Override
+                public float measureUncached(CharSequence text, int start, int end) {
+                    return measure(text, start, end);
+                }
+            };
+
+    @Test
+    public void wrapsBeforeTheWordThatDoesNotFit() {
+        // "aaa bbb " is 80 wide, so "ccc" takes the line past 100
+        List<String> lines = breakLines("aaa bbb ccc ddd", 100, Integer.MAX_VALUE);
+
+        assertEquals(lines.toString(), 2, lines.size());
+        assertEquals("1 WRAPPED [aaa bbb ]", lines.get(0));
+        assertEquals("2 END [ccc ddd]", lines.get(1));
+    }
+
+    @Test
+    public void newLineEndsAParagraph() {
+        List<String> lines = breakLines("aaa\nbbb ccc", 1000, Integer.MAX_VALUE);
+
+        assertEquals(lines.toString(), 2, lines.size());
+        assertEquals("1 END [aaa\n]", lines.get(0));
+        assertEquals("2 END [bbb ccc]", lines.get(1));
+    }
+
+    @Test
+    public void stopsAtMaxLines() {
+        List<String> lines = breakLines("aa bb cc dd ee ff gg hh", 50, 2);
+
+        assertEquals(lines.toString(), 2, lines.size());
+        assertEquals(1, Integer.parseInt(lines.get(0).substring(0, 1)));
+        assertEquals(2, Integer.parseInt(lines.get(1).substring(0, 1)));
+    }
+
+    @Test
+    public void textWithoutSpacesIsLaidOutByCharacter() {
+        List<String> lines = breakLines("abcdefghijklmnop", 50, Integer.MAX_VALUE);
+
+        assertEquals(lines.toString(), 1, lines.size());
+        assertEquals("1 CHARACTERS [abcdefghijklmnop]", lines.get(0));
+    }
+
+    @Test
+    public void measureWordsAddsWordsAndSpaces() {
+        assertEquals(110f, LineBreaker.measureWords("aaa bbb ccc", MONOSPACE, 0, 11), 0f);
+        assertEquals(30f, LineBreaker.measureWords("aaa bbb ccc", MONOSPACE, 4, 7), 0f);
+    }
+
+    @Test
+    public void measuresEachCharacterOnce() {
+        // The measured length grows with the text, not with the square of a line's words
+        String[] words = {"lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing"};
+        for (int length = 1250; length <= 10000; length *= 2) {
+            StringBuilder builder = new StringBuilder(length + 16);
+            for (int word = 0; builder.length() < length; word++) {
+                builder.append(words[word % words.length]).append(' ');
+            }
+            builder.setLength(length);
+
+            final int[] measured = new int[1];
+            TextMeasurer counting =
+                    new TextMeasurer() {
+                        @Override
+                        public float measure(CharSequence text, int start, int end) {
+                            measured[0] += Math.max(0, end - start);
+                            return MONOSPACE.measure(text, start, end);
+                        }
+
+                        @Override
+                        public float measureUncached(CharSequence text, int start, int end) {
+                            return measure(text, start, end);
+                        }
+                    };
+            LineBreaker.breakLines(
+                    builder,
+                    counting,
+                    480,
+                    Integer.MAX_VALUE,
+                    new LineBreaker.LineConsumer() {
+                        @Override
+                        public void onLine(int number, int start, int end, int type) {}
+                    });
+
+            assertTrue(length + " chars measured " + measured[0], measured[0] <= length);
+        }
+    }
+
+    private static List<String> breakLines(final String text, float width, int maxLines) {
+        final List<String> lines = new ArrayList<>();
+        LineBreaker.breakLines(
+                text,
+                MONOSPACE,
+                width,
+                maxLines,
+                new LineBreaker.LineConsumer() {
+                    @Override
+                    public void onLine(int number, int start, int end, int type) {
+                        String name =
+                                type == LineBreaker.LINE_WRAPPED
+                                        ? "WRAPPED"
+                                        : type == LineBreaker.LINE_PARAGRAPH_END
+                                                ? "END"
+                                                : "CHARACTERS";
+                        lines.add(number + " " + name + " [" + text.substring(start, end) + "]");
+                    }
+                });
+        return lines;
+    }
+}
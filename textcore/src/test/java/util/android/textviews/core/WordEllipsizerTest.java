@@ -0,0 +1,55 @@
+/*
+ *  Copyright (c) 2018 Jeff Sutton
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package util.android.textviews.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class WordEllipsizerTest {
+
+    private static final TextMeasurer MONOSPACE = LineBreakerTest.MONOSPACE;
+    private static final float ELLIPSIS = 10;
+
+    @Test
+    public void lineThatFitsIsNotCut() {
+        String text = "aaa bbb";
+        assertEquals(text.length(), cut(text, 100));
+    }
+
+    @Test
+    public void cutsAtTheLastWordThatFits() {
+        // Room for 8 characters before the ellipsis
+        assertEquals(7, cut("aaa bbb ccc ddd", 90));
+    }
+
+    @Test
+    public void cutsBetweenCharactersWhenNoWordFits() {
+        assertEquals(7, cut("https://example.com/path more", 90));
+    }
+
+    @Test
+    public void doesNotSplitASurrogatePair() {
+        // The emoji is at indexes 2 and 3; 3 chars fit, which would end between its halves
+        String text = "ab\ud83d\ude00cdef";
+        assertEquals(2, cut(text, 45));
+    }
+
+    private static int cut(String text, float width) {
+        return WordEllipsizer.findCut(MONOSPACE, text, 0, text.length(), ELLIPSIS, width);
+    }
+}